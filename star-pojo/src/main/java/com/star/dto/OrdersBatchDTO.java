@@ -0,0 +1,14 @@
+package com.star.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+public class OrdersBatchDTO implements Serializable {
+
+    //需要批量处理的订单id，单次最多100个
+    private List<Long> ids;
+
+}
@@ -0,0 +1,22 @@
+package com.star.entity;
+
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class AiModelStats {
+    private Long id; // 统计记录ID
+    private String modelName; // 模型名称
+    private String callType; // 调用类型
+    private LocalDate callDate; // 调用日期
+    private Integer callCount; // 调用次数
+    private Long totalTokens; // 总Token消耗
+    private Long totalResponseTime; // 总响应时间（毫秒）
+    private Integer successCount; // 成功调用次数
+    private Integer errorCount; // 失败调用次数
+    private BigDecimal avgResponseTime; // 平均响应时间（毫秒）
+    private LocalDateTime createdTime; // 创建时间
+    private LocalDateTime updatedTime; // 更新时间
+}
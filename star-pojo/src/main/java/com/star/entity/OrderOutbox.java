@@ -0,0 +1,58 @@
+package com.star.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 订单事件发件箱，与订单状态在同一事务中写入，由中继任务批量投递到RabbitMQ
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderOutbox implements Serializable {
+
+    /**
+     * 事件类型
+     */
+    public static final String ORDER_PAID = "ORDER_PAID";
+
+    /**
+     * 投递状态 0待投递 1已投递
+     */
+    public static final Integer PENDING = 0;
+    public static final Integer SENT = 1;
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    //订单id
+    private Long orderId;
+
+    //订单号
+    private String orderNumber;
+
+    //事件类型
+    private String eventType;
+
+    //事件内容（JSON）
+    private String payload;
+
+    //投递状态 0待投递 1已投递
+    private Integer status;
+
+    //投递失败次数
+    private Integer retryCount;
+
+    //创建时间
+    private LocalDateTime createTime;
+
+    //投递时间
+    private LocalDateTime sentTime;
+}
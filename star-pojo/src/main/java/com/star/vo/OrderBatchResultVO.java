@@ -0,0 +1,24 @@
+package com.star.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量订单操作结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchResultVO implements Serializable {
+    //处理成功的订单id
+    private List<Long> succeeded;
+
+    //订单不存在或状态不允许而未处理的订单id
+    private List<Long> failed;
+}
@@ -1,17 +1,31 @@
 package com.star.ai.agent;
 
 import com.star.ai.agent.base.*;
+import com.star.ai.llm.client.LlmCallContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Agent协调器 - 采用ReAct模式
  * 负责多Agent系统的调度与协作。
+ * Agent通过AgentCapability声明输入输出，协调器据此构建依赖图，互不依赖的Agent并行执行。
+ * 目前的理解 -> 推荐 -> 回复三个Agent前后依赖，单个对话同一时刻只有一个Agent在执行，线程池主要用于按Agent计时超时；
+ * 新增只依赖理解结果的Agent（如与推荐并列的营养分析）时会与推荐并行执行。
  * 实现A2A通信协议，支持Agent间数据共享。
  */
 @Component
@@ -21,8 +35,31 @@ public class AgentCoordinator {
     @Autowired
     private ApplicationContext applicationContext;
 
+    @Autowired
+    private Environment environment;
+
+    // 未配置超时时间的Agent使用的默认值
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
     private final Map<String, AIAgent> registeredAgents = new HashMap<>();
     private final List<AIAgent> orderedAgents = new ArrayList<>();
+    // Agent -> 它依赖的Agent
+    private final Map<AIAgent, List<AIAgent>> dependencies = new HashMap<>();
+    // Agent名称 -> 超时时间
+    private final Map<String, Duration> agentTimeouts = new HashMap<>();
+
+    // Agent执行线程池大小，按同时进行的对话数配置，现有Agent链每个对话同一时刻只占用一个线程
+    @Value("${llm.agents.executor.core-size:32}")
+    private int executorCoreSize;
+
+    @Value("${llm.agents.executor.max-size:64}")
+    private int executorMaxSize;
+
+    @Value("${llm.agents.executor.queue-capacity:200}")
+    private int executorQueueCapacity;
+
+    // Agent执行线程池，线程池满时由提交线程执行，不丢弃任务；空闲线程超时回收，低峰时不常驻
+    private ThreadPoolExecutor agentExecutor;
 
     /**
      * 初始化方法，自动注册所有AIAgent实现
@@ -30,6 +67,9 @@ public class AgentCoordinator {
     @PostConstruct
     public void init() {
         log.info("开始初始化Agent协调器，注册所有Agent");
+        agentExecutor = new ThreadPoolExecutor(executorCoreSize, executorMaxSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(executorQueueCapacity), new ThreadPoolExecutor.CallerRunsPolicy());
+        agentExecutor.allowCoreThreadTimeOut(true);
         
         // 获取Spring容器中所有AIAgent类型的Bean
         Map<String, AIAgent> agentBeans = applicationContext.getBeansOfType(AIAgent.class);
@@ -44,10 +84,16 @@ public class AgentCoordinator {
         // 按优先级排序
         orderedAgents.addAll(registeredAgents.values());
         orderedAgents.sort((a1, a2) -> Integer.compare(a2.getPriority(), a1.getPriority()));
+        resolveDependencies();
         
         log.info("Agent协调器初始化完成，注册{}个Agent", registeredAgents.size());
     }
 
+    @PreDestroy
+    public void destroy() {
+        agentExecutor.shutdownNow();
+    }
+
     /**
      * 处理用户请求，协调多个Agent执行
      * @param request 用户请求
@@ -93,43 +139,139 @@ public class AgentCoordinator {
         
         for (int i = 0; i < orderedAgents.size(); i++) {
             AIAgent agent = orderedAgents.get(i);
-            plan.append(String.format("%d. %s (优先级: %d)\n", 
-                i + 1, agent.getCapability().getName(), agent.getPriority()));
+            List<String> deps = new ArrayList<>();
+            for (AIAgent dep : dependencies.getOrDefault(agent, Collections.emptyList())) {
+                deps.add(dep.getCapability().getName());
+            }
+            plan.append(String.format("%d. %s (优先级: %d, 依赖: %s)\n", 
+                i + 1, agent.getCapability().getName(), agent.getPriority(), deps));
         }
         
         return plan.toString();
     }
 
     /**
-     * ReAct - Acting: 执行Agent链
+     * ReAct - Acting: 按依赖关系并行执行Agent
+     * 每个Agent在其依赖全部成功后提交到线程池执行；任一Agent失败、超时或需要更多信息时，
+     * 依赖它的Agent不再执行，按优先级顺序返回第一个非成功的响应
      */
     private AgentResponse performAgentExecution(AgentRequest request, AgentContext context, String executionPlan) {
+        if (orderedAgents.isEmpty()) {
+            return null;
+        }
+        Map<AIAgent, CompletableFuture<AgentResponse>> futures = new LinkedHashMap<>();
+        // orderedAgents按优先级排序，依赖的Agent一定排在前面（见resolveDependencies），此处按序构建即可
+        for (AIAgent agent : orderedAgents) {
+            List<CompletableFuture<AgentResponse>> depFutures = new ArrayList<>();
+            for (AIAgent dep : dependencies.getOrDefault(agent, Collections.emptyList())) {
+                depFutures.add(futures.get(dep));
+            }
+            CompletableFuture<AgentResponse> future = CompletableFuture
+                    .allOf(depFutures.toArray(new CompletableFuture[0]))
+                    .thenCompose(v -> {
+                        for (CompletableFuture<AgentResponse> depFuture : depFutures) {
+                            AgentResponse depResponse = depFuture.join();
+                            if (depResponse == null || !depResponse.isSuccess()) {
+                                // 上游未成功，跳过当前Agent并把上游结果向下传递
+                                return CompletableFuture.completedFuture(depResponse);
+                            }
+                        }
+                        return runAgent(agent, request, context);
+                    });
+            futures.put(agent, future);
+        }
+
         AgentResponse lastResponse = null;
-        
         for (AIAgent agent : orderedAgents) {
-            String agentName = agent.getCapability().getName();
+            AgentResponse response = futures.get(agent).join();
+            if (response == null || !response.isSuccess()) {
+                return response;
+            }
+            lastResponse = response;
+        }
+        return lastResponse;
+    }
+
+    /**
+     * 在线程池中执行单个Agent，超过配置的超时时间则中断并返回失败
+     * 超时从Agent开始执行时计算，在线程池队列中等待的时间不计入
+     */
+    private CompletableFuture<AgentResponse> runAgent(AIAgent agent, AgentRequest request, AgentContext context) {
+        String agentName = agent.getCapability().getName();
+        Duration timeout = agentTimeouts.getOrDefault(agentName, DEFAULT_TIMEOUT);
+        AgentEventListener listener = context.getEventListener();
+        CompletableFuture<AgentResponse> result = new CompletableFuture<>();
+
+        AtomicReference<Future<?>> task = new AtomicReference<>();
+        task.set(agentExecutor.submit(() -> {
+            result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
             log.info("执行Agent: {}", agentName);
-            
+            if (listener != null) {
+                listener.onAgentStart(agentName);
+            }
             try {
-                AgentResponse response = agent.process(request, context);
-                lastResponse = response;
-                
+                AgentResponse response = LlmCallContext.withUsage(context.getLlmUsage(), () -> agent.process(request, context));
                 if (response.isError()) {
                     log.warn("Agent {} 执行失败: {}", agentName, response.getMessage());
-                    return response;
                 } else if (response.isNeedMoreInfo()) {
                     log.info("Agent {} 需要更多信息: {}", agentName, response.getMessage());
-                    return response;
                 } else {
                     log.info("Agent {} 执行成功", agentName);
                 }
+                result.complete(response);
             } catch (Exception e) {
                 log.error("Agent {} 执行异常", agentName, e);
-                return AgentResponse.error(String.format("%s执行失败: %s", agentName, e.getMessage()));
+                result.complete(AgentResponse.error(String.format("%s执行失败: %s", agentName, e.getMessage())));
+            }
+        }));
+
+        return result
+                .exceptionally(e -> {
+                    Future<?> running = task.get();
+                    if (running != null) {
+                        running.cancel(true);
+                    }
+                    log.warn("Agent {} 执行超时({}ms)", agentName, timeout.toMillis());
+                    return AgentResponse.error(String.format("%s执行超时", agentName));
+                })
+                .thenApply(response -> {
+                    if (listener != null) {
+                        listener.onAgentComplete(agentName, response);
+                    }
+                    return response;
+                });
+    }
+
+    /**
+     * 根据Agent声明的输入输出建立依赖关系
+     * 输入由某个Agent产出时依赖该Agent；未声明输入的Agent依赖所有优先级更高的Agent；
+     * 只允许依赖优先级更高的Agent，从而保证无环
+     */
+    private void resolveDependencies() {
+        dependencies.clear();
+        for (int i = 0; i < orderedAgents.size(); i++) {
+            AIAgent agent = orderedAgents.get(i);
+            List<String> inputs = agent.getCapability().getInputs();
+            List<AIAgent> deps = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                AIAgent candidate = orderedAgents.get(j);
+                List<String> outputs = candidate.getCapability().getOutputs();
+                if (inputs == null || (outputs != null && !Collections.disjoint(inputs, outputs))) {
+                    deps.add(candidate);
+                }
             }
+            dependencies.put(agent, deps);
+            agentTimeouts.put(agent.getCapability().getName(), resolveTimeout(agent.getCapability().getName()));
         }
-        
-        return lastResponse;
+    }
+
+    /**
+     * 读取 llm.agents.{key}.timeout，key为Agent名称去掉Agent后缀后的小写形式，如UnderstandingAgent -> understanding
+     */
+    private Duration resolveTimeout(String agentName) {
+        String key = agentName.endsWith("Agent") ? agentName.substring(0, agentName.length() - "Agent".length()) : agentName;
+        Duration timeout = environment.getProperty("llm.agents." + key.toLowerCase() + ".timeout", Duration.class);
+        return timeout != null ? timeout : DEFAULT_TIMEOUT;
     }
 
     /**
@@ -168,12 +310,13 @@ public class AgentCoordinator {
      * 手动注册Agent
      * @param agent Agent实例
      */
-    public void registerAgent(AIAgent agent) {
+    public synchronized void registerAgent(AIAgent agent) {
         if (agent != null) {
             String agentName = agent.getCapability().getName();
             registeredAgents.put(agentName, agent);
             orderedAgents.add(agent);
             orderedAgents.sort((a1, a2) -> Integer.compare(a2.getPriority(), a1.getPriority()));
+            resolveDependencies();
             log.info("手动注册Agent: {}", agentName);
         }
     }
@@ -10,18 +10,28 @@ import com.star.pojo.entity.Dish;
 import com.star.ai.agent.tool.ToolRegistry;
 import com.star.ai.agent.tool.Tool;
 import com.star.vo.RecipeNutritionResult;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.ai.chat.ChatClient;
+import com.star.ai.llm.cache.SemanticResponseCache;
+import com.star.ai.llm.client.LlmCallContext;
 import org.springframework.ai.document.Document;
 import lombok.extern.slf4j.Slf4j;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.stream.Collectors;
 import java.math.BigDecimal;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 推荐Agent - 采用ReAct模式
@@ -35,6 +45,9 @@ public class RecommendationAgent implements AIAgent {
     @Autowired
     private ChatClient chatClient;
     
+    @Autowired
+    private SemanticResponseCache semanticResponseCache;
+    
     @Autowired
     private RAGService ragService;
     
@@ -44,6 +57,24 @@ public class RecommendationAgent implements AIAgent {
     @Autowired
     private ToolRegistry toolRegistry;
     
+    // 混合检索返回的文档数：关键词召回补足菜名匹配后，不需要靠加大向量topK保召回
+    @Value("${llm.rag.hybrid.top-k:5}")
+    private int retrievalTopK;
+    
+    @Value("${llm.rag.vector-store.similarity-threshold:0.7}")
+    private double similarityThreshold;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private static final String DEFAULT_REASON = "符合您的口味偏好";
+    
+    // 逐个生成推荐理由时，全局同时进行的大模型调用数上限
+    private static final Semaphore REASON_PERMITS = new Semaphore(4);
+    private static final long REASON_PERMIT_TIMEOUT_SECONDS = 10;
+
+    @Autowired
+    private ThreadPoolTaskExecutor backgroundExecutor;
+    
     @Override
     public AgentResponse process(AgentRequest request, AgentContext context) {
         try {
@@ -122,7 +153,8 @@ public class RecommendationAgent implements AIAgent {
             requirement.getSpecialNeeds(),
             userMessage);
         
-        return chatClient.call(reasoningPrompt);
+        return LlmCallContext.with("recommendation-reasoning",
+                () -> semanticResponseCache.call("recommendation", requirement + "\n" + userMessage, reasoningPrompt, chatClient));
     }
     
     /**
@@ -134,8 +166,9 @@ public class RecommendationAgent implements AIAgent {
         String searchQuery = buildSearchQuery(requirement);
         log.debug("搜索查询: {}", searchQuery);
         
-        // 2. RAG向量检索
-        List<Document> relevantDocs = vectorSearchService.similaritySearch(searchQuery);
+        // 2. RAG检索（关键词+向量混合）
+        List<Document> relevantDocs = vectorSearchService.search(searchQuery, retrievalTopK, similarityThreshold,
+                VectorSearchService.RetrievalMode.HYBRID);
         log.debug("检索到{}个相关文档", relevantDocs.size());
         
         // 3. 基于内容过滤和排序
@@ -375,46 +408,142 @@ public class RecommendationAgent implements AIAgent {
     
     /**
      * 使用大模型优化推荐理由
+     * 先用一次批量Prompt让模型以JSON返回全部菜品的理由；批量调用失败或有菜品缺少理由时，
+     * 对这些菜品逐个并发调用，并发数由信号量限制
      */
     private List<DishRecommendation> enhanceWithLLM(List<DishRecommendation> recommendations, 
                                                    UserRequirement requirement, AgentContext context) {
-        for (DishRecommendation rec : recommendations) {
-            String reasonPrompt = String.format("""
-                为以下菜品生成个性化推荐理由：
-                
-                菜品：%s
-                价格：%.2f元
-                描述：%s
-                
-                用户需求：
-                - 用餐人数：%s人
-                - 口味偏好：%s
-                - 菜系偏好：%s
-                - 预算：%s元/人
-                
-                请生成一句简洁的推荐理由（30字以内），说明为什么推荐这道菜：
-                """, 
-                rec.getDish().getName(),
-                rec.getDish().getPrice(),
-                rec.getDish().getDescription(),
-                requirement.getPeopleCount(),
-                requirement.getTastePreferences(),
-                requirement.getCuisineType(),
-                requirement.getBudgetRange()
-            );
-            
-            try {
-                String reason = chatClient.call(reasonPrompt);
-                rec.setReason(reason.trim());
-            } catch (Exception e) {
-                log.warn("生成推荐理由失败: {}", e.getMessage());
-                rec.setReason("符合您的口味偏好");
+        if (recommendations.isEmpty()) {
+            return recommendations;
+        }
+        
+        List<DishRecommendation> missing = new ArrayList<>();
+        Map<String, String> reasons = generateReasonsInBatch(recommendations, requirement);
+        for (int i = 0; i < recommendations.size(); i++) {
+            String reason = reasons.get(String.valueOf(i + 1));
+            if (reason != null && !reason.trim().isEmpty()) {
+                recommendations.get(i).setReason(reason.trim());
+            } else {
+                missing.add(recommendations.get(i));
             }
         }
         
+        if (!missing.isEmpty()) {
+            log.info("批量生成推荐理由缺少{}道菜品，逐个并发补齐", missing.size());
+            generateReasonsConcurrently(missing, requirement);
+        }
+        
         return recommendations;
     }
     
+    /**
+     * 一次调用生成所有菜品的推荐理由，返回 序号 -> 理由，失败时返回空Map
+     */
+    private Map<String, String> generateReasonsInBatch(List<DishRecommendation> recommendations, UserRequirement requirement) {
+        StringBuilder dishList = new StringBuilder();
+        for (int i = 0; i < recommendations.size(); i++) {
+            DishRecommendation rec = recommendations.get(i);
+            dishList.append(String.format("%d. 菜品：%s；价格：%.2f元；描述：%s\n",
+                    i + 1,
+                    rec.getDish().getName(),
+                    rec.getDish().getPrice(),
+                    rec.getDish().getDescription()));
+        }
+        
+        String batchPrompt = String.format("""
+            为以下每道菜品生成个性化推荐理由：
+            
+            %s
+            用户需求：
+            - 用餐人数：%s人
+            - 口味偏好：%s
+            - 菜系偏好：%s
+            - 预算：%s元/人
+            
+            每道菜生成一句简洁的推荐理由（30字以内），说明为什么推荐这道菜。
+            只返回JSON对象，键为菜品序号，值为推荐理由，例如：{"1": "理由", "2": "理由"}
+            
+            JSON结果：
+            """, 
+            dishList,
+            requirement.getPeopleCount(),
+            requirement.getTastePreferences(),
+            requirement.getCuisineType(),
+            requirement.getBudgetRange()
+        );
+        
+        try {
+            String llmResponse = LlmCallContext.with("recommendation-reason", () -> chatClient.call(batchPrompt));
+            int start = llmResponse.indexOf("{");
+            int end = llmResponse.lastIndexOf("}");
+            if (start == -1 || end <= start) {
+                log.warn("批量推荐理由不是JSON格式");
+                return Collections.emptyMap();
+            }
+            return objectMapper.readValue(llmResponse.substring(start, end + 1), new TypeReference<Map<String, String>>() {});
+        } catch (Exception e) {
+            log.warn("批量生成推荐理由失败: {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+    
+    /**
+     * 逐个菜品并发生成推荐理由，所有请求共享同一个信号量，限制同时进行的大模型调用数
+     */
+    private void generateReasonsConcurrently(List<DishRecommendation> recommendations, UserRequirement requirement) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (DishRecommendation rec : recommendations) {
+            futures.add(CompletableFuture.runAsync(LlmCallContext.propagate(() -> rec.setReason(generateSingleReason(rec, requirement))), backgroundExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+    
+    private String generateSingleReason(DishRecommendation rec, UserRequirement requirement) {
+        String reasonPrompt = String.format("""
+            为以下菜品生成个性化推荐理由：
+            
+            菜品：%s
+            价格：%.2f元
+            描述：%s
+            
+            用户需求：
+            - 用餐人数：%s人
+            - 口味偏好：%s
+            - 菜系偏好：%s
+            - 预算：%s元/人
+            
+            请生成一句简洁的推荐理由（30字以内），说明为什么推荐这道菜：
+            """, 
+            rec.getDish().getName(),
+            rec.getDish().getPrice(),
+            rec.getDish().getDescription(),
+            requirement.getPeopleCount(),
+            requirement.getTastePreferences(),
+            requirement.getCuisineType(),
+            requirement.getBudgetRange()
+        );
+        
+        boolean acquired = false;
+        try {
+            acquired = REASON_PERMITS.tryAcquire(REASON_PERMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (!acquired) {
+                log.warn("推荐理由生成排队超时: {}", rec.getDish().getName());
+                return DEFAULT_REASON;
+            }
+            return LlmCallContext.with("recommendation-reason", () -> chatClient.call(reasonPrompt)).trim();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return DEFAULT_REASON;
+        } catch (Exception e) {
+            log.warn("生成推荐理由失败: {}", e.getMessage());
+            return DEFAULT_REASON;
+        } finally {
+            if (acquired) {
+                REASON_PERMITS.release();
+            }
+        }
+    }
+    
     /**
      * 计算总价格
      */
@@ -447,6 +576,8 @@ public class RecommendationAgent implements AIAgent {
                 .description("基于RAG的智能推荐Agent，采用ReAct模式")
                 .inputType("用户需求 (UserRequirement)")
                 .outputType("推荐结果 (RecommendationResult)")
+                .inputs(Collections.singletonList("userRequirement"))
+                .outputs(Arrays.asList("recommendationResult", "recommendationCompleted"))
                 .supportedFeatures(Arrays.asList("RAG检索", "内容过滤", "智能排序", "个性化推荐"))
                 .version("1.0.0")
                 .build();
@@ -8,6 +8,10 @@ import com.star.pojo.vo.DishRecommendation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.ai.chat.ChatClient;
+import com.star.ai.llm.cache.SemanticResponseCache;
+import com.star.ai.llm.client.LlmCallContext;
+import org.springframework.ai.chat.StreamingChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
 import lombok.extern.slf4j.Slf4j;
 import java.util.Arrays;
 import java.util.List;
@@ -27,6 +31,9 @@ public class ResponseAgent implements AIAgent {
     @Autowired
     private ChatClient chatClient;
     
+    @Autowired
+    private SemanticResponseCache semanticResponseCache;
+    
     @Override
     public AgentResponse process(AgentRequest request, AgentContext context) {
         try {
@@ -112,7 +119,10 @@ public class ResponseAgent implements AIAgent {
             requirement.getCuisineType(),
             userMessage);
         
-        return chatClient.call(reasoningPrompt);
+        String semanticKey = String.format("%d|%s|%s|%s",
+            recommendation.getDishes().size(), requirement, recommendation.getTotalPrice(), userMessage);
+        return LlmCallContext.with("response-reasoning",
+                () -> semanticResponseCache.call("response", semanticKey, reasoningPrompt, chatClient));
     }
     
     /**
@@ -142,8 +152,9 @@ public class ResponseAgent implements AIAgent {
         // 3. 构建回复生成Prompt (支持Function Calling扩展)
         String responsePrompt = buildResponsePrompt(dishList.toString(), recommendation, requirement, avgPrice, reasoning);
         
-        // 4. 调用大模型生成自然语言回复
-        String naturalResponse = chatClient.call(responsePrompt);
+        // 4. 调用大模型生成自然语言回复（流式对话时边生成边推送）
+        String naturalResponse = LlmCallContext.with("response-generation",
+                () -> generateText(responsePrompt, context.getEventListener()));
         
         // 5. 生成后续问题
         List<String> followUpQuestions = generateFollowUpQuestions(recommendation, requirement, context);
@@ -160,6 +171,30 @@ public class ResponseAgent implements AIAgent {
                 .build();
     }
     
+    /**
+     * 生成回复文本
+     * 有事件监听器且模型支持流式输出时，逐段把Token推给监听器，最终返回拼接后的完整文本
+     */
+    private String generateText(String prompt, AgentEventListener listener) {
+        if (listener == null || !(chatClient instanceof StreamingChatClient)) {
+            return chatClient.call(prompt);
+        }
+        StringBuilder text = new StringBuilder();
+        ((StreamingChatClient) chatClient).stream(new Prompt(prompt))
+                .doOnNext(chunk -> {
+                    if (chunk.getResult() == null || chunk.getResult().getOutput() == null) {
+                        return;
+                    }
+                    String token = chunk.getResult().getOutput().getContent();
+                    if (token != null && !token.isEmpty()) {
+                        text.append(token);
+                        listener.onToken(token);
+                    }
+                })
+                .blockLast();
+        return text.toString();
+    }
+    
     /**
      * ReAct - Observing: 验证回复质量
      */
@@ -308,6 +343,8 @@ public class ResponseAgent implements AIAgent {
                 .description("自然语言生成回复Agent，采用ReAct模式，支持Function Calling")
                 .inputType("推荐结果 (RecommendationResult)")
                 .outputType("对话回复 (ChatResponse)")
+                .inputs(Arrays.asList("userRequirement", "recommendationResult"))
+                .outputs(Arrays.asList("finalResponse", "responseCompleted"))
                 .supportedFeatures(Arrays.asList("自然语言生成", "对话管理", "Function Calling", "后续问题生成"))
                 .version("1.0.0")
                 .build();
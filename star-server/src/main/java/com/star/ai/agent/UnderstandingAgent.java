@@ -1,14 +1,23 @@
 package com.star.ai.agent;
 
 import com.star.ai.agent.base.*;
+import com.star.ai.chat.MessageProcessor;
 import com.star.pojo.dto.UserRequirement;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.ai.chat.ChatClient;
+import com.star.ai.llm.cache.SemanticResponseCache;
+import com.star.ai.llm.client.LlmCallContext;
 import lombok.extern.slf4j.Slf4j;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 理解Agent - 采用ReAct模式
@@ -22,21 +31,53 @@ public class UnderstandingAgent implements AIAgent {
     @Autowired
     private ChatClient chatClient;
     
+    @Autowired
+    private SemanticResponseCache semanticResponseCache;
+    
+    @Autowired
+    private MessageProcessor messageProcessor;
+    
+    @Value("${llm.agents.understanding.fast-path.enabled:true}")
+    private boolean fastPathEnabled;
+    
+    @Value("${llm.agents.understanding.fast-path.min-confidence:1.0}")
+    private double fastPathMinConfidence;
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
     
+    // 快速路径与大模型路径的次数和累计耗时（纳秒）
+    private final LongAdder fastPathHits = new LongAdder();
+    private final LongAdder fastPathNanos = new LongAdder();
+    private final LongAdder llmPathCount = new LongAdder();
+    private final LongAdder llmPathNanos = new LongAdder();
+    
     @Override
     public AgentResponse process(AgentRequest request, AgentContext context) {
         try {
             log.info("UnderstandingAgent开始处理请求: {}", request.getRequestId());
             
-            // ReAct模式：Reasoning（推理） -> Acting（行动） -> Observing（观察）
+            long startTime = System.nanoTime();
             
-            // 1. Reasoning: 分析用户输入，决定处理策略
-            String reasoning = performReasoning(request.getUserMessage(), context);
-            log.debug("推理结果: {}", reasoning);
-            
-            // 2. Acting: 执行结构化提取
-            UserRequirement userRequirement = performExtraction(request.getUserMessage(), context, reasoning);
+            // 0. 快速路径：规则提取已覆盖必填需求时不调用大模型
+            Map<String, Object> keyInfo = messageProcessor.extractKeyInformation(
+                    messageProcessor.preprocessMessage(request.getUserMessage()));
+            UserRequirement userRequirement = fastPathEnabled ? tryRuleExtraction(keyInfo) : null;
+            if (userRequirement != null) {
+                fastPathHits.increment();
+                fastPathNanos.add(System.nanoTime() - startTime);
+                log.info("UnderstandingAgent命中规则快速路径，跳过大模型调用");
+            } else {
+                // ReAct模式：Reasoning（推理） -> Acting（行动） -> Observing（观察）
+                
+                // 1. Reasoning: 分析用户输入，决定处理策略
+                String reasoning = performReasoning(request.getUserMessage(), keyInfo, context);
+                log.debug("推理结果: {}", reasoning);
+                
+                // 2. Acting: 执行结构化提取
+                userRequirement = performExtraction(request.getUserMessage(), context, reasoning);
+                llmPathCount.increment();
+                llmPathNanos.add(System.nanoTime() - startTime);
+            }
             
             // 3. Observing: 验证提取结果
             boolean isValid = validateExtraction(userRequirement);
@@ -63,10 +104,65 @@ public class UnderstandingAgent implements AIAgent {
         }
     }
     
+    /**
+     * 规则提取需求并计算置信度，达到阈值时返回需求，否则返回null走大模型
+     * 置信度按必填字段计：人数0.35、预算0.35、口味或菜系0.3
+     */
+    private UserRequirement tryRuleExtraction(Map<String, Object> keyInfo) {
+        double confidence = 0;
+        if (keyInfo.containsKey("peopleCount")) {
+            confidence += 0.35;
+        }
+        if (keyInfo.containsKey("budget")) {
+            confidence += 0.35;
+        }
+        if (keyInfo.containsKey("tastePreferences") || keyInfo.containsKey("cuisineType")) {
+            confidence += 0.3;
+        }
+        // 浮点累加误差
+        if (confidence + 1e-6 < fastPathMinConfidence) {
+            log.debug("规则提取置信度不足: {}", confidence);
+            return null;
+        }
+        
+        UserRequirement requirement = new UserRequirement();
+        requirement.setPeopleCount((Integer) keyInfo.get("peopleCount"));
+        requirement.setBudgetRange((Integer) keyInfo.get("budget"));
+        requirement.setTastePreferences(castList(keyInfo.get("tastePreferences")));
+        requirement.setCuisineType((String) keyInfo.get("cuisineType"));
+        requirement.setDiningPurpose((String) keyInfo.get("diningPurpose"));
+        requirement.setDietaryRestrictions(castList(keyInfo.get("dietaryRestrictions")));
+        return requirement;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<String> castList(Object value) {
+        return value == null ? new ArrayList<>() : (List<String>) value;
+    }
+    
+    /**
+     * 快速路径统计：命中率、两条路径的平均耗时，以及按大模型路径平均耗时估算的累计节省时间
+     */
+    public Map<String, Object> getFastPathStats() {
+        long hits = fastPathHits.sum();
+        long llmCount = llmPathCount.sum();
+        double fastAvgMs = hits == 0 ? 0 : fastPathNanos.sum() / 1e6 / hits;
+        double llmAvgMs = llmCount == 0 ? 0 : llmPathNanos.sum() / 1e6 / llmCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", fastPathEnabled);
+        stats.put("fastPathHits", hits);
+        stats.put("llmPathCount", llmCount);
+        stats.put("hitRate", hits + llmCount == 0 ? 0.0 : (double) hits / (hits + llmCount));
+        stats.put("fastPathAvgMs", fastAvgMs);
+        stats.put("llmPathAvgMs", llmAvgMs);
+        stats.put("estimatedSavedMs", llmCount == 0 ? 0 : (long) ((llmAvgMs - fastAvgMs) * hits));
+        return stats;
+    }
+    
     /**
      * ReAct - Reasoning: 推理用户意图和处理策略
      */
-    private String performReasoning(String userMessage, AgentContext context) {
+    private String performReasoning(String userMessage, Map<String, Object> keyInfo, AgentContext context) {
         String reasoningPrompt = String.format("""
             你是一个专业的餐饮需求分析师。请分析用户消息，判断用户意图和处理策略。
             
@@ -81,7 +177,10 @@ public class UnderstandingAgent implements AIAgent {
             请用简洁的文字回答：
             """, userMessage);
         
-        return chatClient.call(reasoningPrompt);
+        // 推理结果只取决于用户消息，相近的消息可复用；人数、预算不同的消息向量上仍很相近，作为精确键区分
+        String exactKey = "peopleCount=" + keyInfo.get("peopleCount") + "|budget=" + keyInfo.get("budget");
+        return LlmCallContext.with("understanding-reasoning",
+                () -> semanticResponseCache.call("understanding", userMessage, exactKey, reasoningPrompt, chatClient));
     }
     
     /**
@@ -122,7 +221,8 @@ public class UnderstandingAgent implements AIAgent {
             """, reasoning, conversationHistory, userMessage);
         
         try {
-            String llmResponse = chatClient.call(extractionPrompt);
+            // 提取结果由消息和近期历史唯一决定，走精确匹配缓存
+            String llmResponse = LlmCallContext.with("understanding-extraction", () -> chatClient.call(extractionPrompt));
             String jsonPart = extractJSON(llmResponse);
             return objectMapper.readValue(jsonPart, UserRequirement.class);
         } catch (Exception e) {
@@ -192,6 +292,8 @@ public class UnderstandingAgent implements AIAgent {
                 .description("自然语言理解和需求提取Agent，采用ReAct模式")
                 .inputType("自然语言文本")
                 .outputType("结构化用户需求 (UserRequirement)")
+                .inputs(Collections.emptyList())
+                .outputs(Arrays.asList("userRequirement", "understandingResult"))
                 .supportedFeatures(Arrays.asList("NLU", "需求提取", "意图识别", "上下文理解"))
                 .version("1.0.0")
                 .build();
@@ -31,6 +31,17 @@ public class AgentCapability {
      */
     private String outputType;
     
+    /**
+     * 依赖的共享数据键（由其他Agent写入AgentContext.sharedData）
+     * 为null时视为依赖所有优先级更高的Agent，按原有顺序执行；为空列表表示无依赖
+     */
+    private List<String> inputs;
+    
+    /**
+     * 产出的共享数据键
+     */
+    private List<String> outputs;
+    
     /**
      * Agent支持的功能列表
      */
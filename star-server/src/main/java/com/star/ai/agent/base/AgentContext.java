@@ -2,12 +2,14 @@ package com.star.ai.agent.base;
 
 import lombok.Data;
 import lombok.Builder;
+import com.star.ai.llm.client.LlmUsage;
 import org.springframework.ai.chat.ChatClient;
 import org.springframework.ai.vectorstore.VectorStore;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Agent上下文
@@ -44,6 +46,18 @@ public class AgentContext {
      */
     private Map<String, Object> sharedData;
     
+    /**
+     * 执行事件监听器
+     * 流式对话时不为空，用于推送Agent进度和回复Token
+     */
+    private AgentEventListener eventListener;
+    
+    /**
+     * 大模型用量累计
+     * Agent在线程池中执行时绑定到执行线程，汇总本次对话所有大模型调用的耗时和Token
+     */
+    private LlmUsage llmUsage;
+    
     /**
      * 获取共享数据
      * @param key 数据键
@@ -63,18 +77,23 @@ public class AgentContext {
      * @param key 数据键
      * @param value 数据值
      */
-    public void setSharedData(String key, Object value) {
+    public synchronized void setSharedData(String key, Object value) {
         if (sharedData == null) {
-            sharedData = new HashMap<>();
+            sharedData = new ConcurrentHashMap<>();
+        }
+        // 并行执行的Agent共用该Map，使用ConcurrentHashMap时不能写入null
+        if (value == null) {
+            sharedData.remove(key);
+        } else {
+            sharedData.put(key, value);
         }
-        sharedData.put(key, value);
     }
     
     /**
      * 添加对话消息到历史记录
      * @param message 对话消息
      */
-    public void addToHistory(ConversationMessage message) {
+    public synchronized void addToHistory(ConversationMessage message) {
         if (history == null) {
             history = new ArrayList<>();
         }
@@ -86,11 +105,11 @@ public class AgentContext {
      * @param count 消息数量
      * @return 最近的历史消息列表
      */
-    public List<ConversationMessage> getRecentHistory(int count) {
+    public synchronized List<ConversationMessage> getRecentHistory(int count) {
         if (history == null || history.isEmpty()) {
             return new ArrayList<>();
         }
         int startIndex = Math.max(0, history.size() - count);
-        return history.subList(startIndex, history.size());
+        return new ArrayList<>(history.subList(startIndex, history.size()));
     }
 } 
\ No newline at end of file
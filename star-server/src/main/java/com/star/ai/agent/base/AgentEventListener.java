@@ -0,0 +1,30 @@
+package com.star.ai.agent.base;
+
+/**
+ * Agent执行事件监听器
+ * 流式对话时用于把Agent链路的中间进度和回复Token实时推给客户端，非流式调用不设置。
+ */
+public interface AgentEventListener {
+
+    /**
+     * Agent开始执行
+     * @param agentName Agent名称
+     */
+    default void onAgentStart(String agentName) {
+    }
+
+    /**
+     * Agent执行结束
+     * @param agentName Agent名称
+     * @param response  Agent响应
+     */
+    default void onAgentComplete(String agentName, AgentResponse response) {
+    }
+
+    /**
+     * 收到大模型输出的一段Token
+     * @param token 增量文本
+     */
+    default void onToken(String token) {
+    }
+}
@@ -2,6 +2,8 @@ package com.star.ai.agent.base;
 
 import lombok.Data;
 import lombok.Builder;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 import java.util.Map;
 
@@ -11,6 +13,8 @@ import java.util.Map;
  */
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class ConversationMessage {
     /**
      * 消息类型：用户消息
@@ -1,6 +1,8 @@
 package com.star.ai.chat;
 
 import com.star.ai.agent.AgentCoordinator;
+import com.star.ai.agent.base.AgentEventListener;
+import com.star.ai.agent.base.AgentResponse;
 import com.star.pojo.vo.ChatResponse;
 import com.star.ai.rag.RAGService;
 import com.star.ai.llm.client.ModelServiceManager;
@@ -8,13 +10,16 @@ import com.star.pojo.dto.ChatRequest;
 import com.star.result.Result;
 import com.star.pojo.entity.AiConversation;
 import com.star.pojo.entity.AiRecommendationLog;
-import com.star.mapper.AiRecommendationLogMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.util.StringUtils;
 import java.util.*;
 import java.time.LocalDateTime;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 对话接口控制器
@@ -35,7 +40,14 @@ public class ChatController {
     private ModelServiceManager modelServiceManager;
     
     @Autowired
-    private AiRecommendationLogMapper recommendationLogMapper;
+    private ConversationWriteBuffer conversationWriteBuffer;
+
+    // 流式对话的超时时间，覆盖整条Agent链路的最长耗时
+    private static final long STREAM_TIMEOUT_MILLIS = 120 * 1000L;
+
+    // 流式对话在后台线程执行Agent链路，请求线程立即返回；队列满时直接拒绝，避免请求无限堆积
+    @Autowired
+    private ThreadPoolTaskExecutor chatStreamExecutor;
 
     /**
      * AI智能对话接口 - 大模型应用核心
@@ -66,6 +78,42 @@ public class ChatController {
         }
     }
 
+    /**
+     * AI智能对话流式接口（Server-Sent Events）
+     * 事件：agent（Agent开始/结束）、token（回复增量文本）、done（完整回复）、error（处理失败）
+     */
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@RequestBody ChatRequest request) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        if (!StringUtils.hasText(request.getMessage())) {
+            sendErrorAndComplete(emitter, "消息内容不能为空");
+            return emitter;
+        }
+        if (request.getUserId() == null) {
+            sendErrorAndComplete(emitter, "用户ID不能为空");
+            return emitter;
+        }
+        log.info("接收到AI流式对话请求，用户ID：{}，会话ID：{}", request.getUserId(), request.getSessionId());
+
+        try {
+            chatStreamExecutor.execute(() -> {
+                try {
+                    ChatResponse response = conversationService.processMessageStream(request, new SseAgentEventListener(emitter));
+                    emitter.send(SseEmitter.event().name("done").data(response));
+                    emitter.complete();
+                    log.info("AI流式对话处理完成，会话ID：{}", response.getSessionId());
+                } catch (Exception e) {
+                    log.error("AI流式对话处理失败", e);
+                    sendErrorAndComplete(emitter, "对话处理失败：" + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("AI流式对话线程池已满，拒绝请求，会话ID：{}", request.getSessionId());
+            sendErrorAndComplete(emitter, "系统繁忙，请稍后再试");
+        }
+        return emitter;
+    }
+
     /**
      * RAG知识库搜索接口
      */
@@ -147,7 +195,7 @@ public class ChatController {
             log.setCreatedTime(LocalDateTime.now());
             log.setUpdatedTime(LocalDateTime.now());
             
-            recommendationLogMapper.insert(log);
+            conversationWriteBuffer.addRecommendationLog(log);
             
             log.info("用户反馈已记录，会话ID：{}，反馈类型：{}", sessionId, feedbackType);
             return Result.success("反馈已记录，谢谢您的建议！");
@@ -210,6 +258,61 @@ public class ChatController {
         }
     }
     
+    private void sendErrorAndComplete(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(message));
+            emitter.complete();
+        } catch (Exception e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * 把Agent执行事件转成SSE事件；客户端断开后不再发送
+     */
+    private static class SseAgentEventListener implements AgentEventListener {
+        private final SseEmitter emitter;
+        private volatile boolean closed;
+
+        private SseAgentEventListener(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void onAgentStart(String agentName) {
+            Map<String, Object> event = new HashMap<>();
+            event.put("agent", agentName);
+            event.put("phase", "start");
+            send("agent", event);
+        }
+
+        @Override
+        public void onAgentComplete(String agentName, AgentResponse response) {
+            Map<String, Object> event = new HashMap<>();
+            event.put("agent", agentName);
+            event.put("phase", "complete");
+            event.put("status", response.getStatus());
+            send("agent", event);
+        }
+
+        @Override
+        public void onToken(String token) {
+            send("token", token);
+        }
+
+        private void send(String name, Object data) {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data));
+            } catch (Exception e) {
+                closed = true;
+                log.debug("AI流式对话客户端已断开：{}", e.getMessage());
+            }
+        }
+    }
+    
     /**
      * 将反馈类型转换为分数
      */
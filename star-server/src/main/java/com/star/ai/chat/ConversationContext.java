@@ -1,5 +1,6 @@
 package com.star.ai.chat;
 
+import com.alibaba.fastjson.annotation.JSONField;
 import com.star.ai.agent.base.ConversationMessage;
 import com.star.pojo.dto.UserRequirement;
 import com.star.pojo.vo.DishRecommendation;
@@ -142,6 +143,15 @@ public class ConversationContext {
         return conversationHistory.subList(startIndex, conversationHistory.size());
     }
     
+    /**
+     * 只保留最近的max条对话历史
+     */
+    public void trimHistory(int max) {
+        if (conversationHistory != null && conversationHistory.size() > max) {
+            conversationHistory = new ArrayList<>(conversationHistory.subList(conversationHistory.size() - max, conversationHistory.size()));
+        }
+    }
+    
     /**
      * 更新用户偏好
      */
@@ -222,6 +232,7 @@ public class ConversationContext {
     /**
      * 检查对话是否超时（超过30分钟无活动）
      */
+    @JSONField(serialize = false)
     public boolean isExpired() {
         if (lastActiveTime == null) {
             return false;
@@ -246,6 +257,7 @@ public class ConversationContext {
     /**
      * 获取上下文摘要信息
      */
+    @JSONField(serialize = false)
     public String getContextSummary() {
         StringBuilder summary = new StringBuilder();
         summary.append("会话ID: ").append(sessionId).append(", ");
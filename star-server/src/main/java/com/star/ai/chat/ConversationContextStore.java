@@ -0,0 +1,137 @@
+package com.star.ai.chat;
+
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 会话上下文存储
+ * 本地缓存 + Redis写穿：读先查本地，未命中再读Redis并回填本地；写同时更新本地和Redis，
+ * Redis中的过期时间为会话超时时间，本地条目超过本地有效期或会话超时后失效，由定时任务清理。
+ * 每次保存生成新的版本号单独存放，使用本地条目前先读一次版本号比对：多节点部署时会话在节点间切换，
+ * 其他节点写过的上下文会被重新加载，不会基于本地的旧上下文继续对话并覆盖掉其他节点写入的轮次。
+ */
+@Component
+@Slf4j
+public class ConversationContextStore {
+
+    private static final String KEY_PREFIX = "ai:conversation:context:";
+    private static final String VERSION_KEY_PREFIX = "ai:conversation:context:version:";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${ai.conversation.session-timeout:1800}")
+    private long sessionTimeout;
+
+    // 本地条目有效期（秒），过期后从Redis重新加载
+    @Value("${ai.conversation.context-local-ttl:300}")
+    private long localTtl;
+
+    private final Map<String, LocalEntry> localContexts = new ConcurrentHashMap<>();
+
+    /**
+     * 获取会话上下文，不存在或已过期时返回null
+     *
+     * @param sessionId
+     * @return
+     */
+    public ConversationContext get(String sessionId) {
+        long now = System.currentTimeMillis();
+        LocalEntry local = localContexts.get(sessionId);
+        boolean localValid = local != null && local.expireAt > now && !local.context.isExpired();
+
+        String version;
+        String json;
+        try {
+            // 先读版本号再读上下文，与写入顺序相反，读到的版本号不会比上下文新
+            version = stringRedisTemplate.opsForValue().get(VERSION_KEY_PREFIX + sessionId);
+            if (localValid && local.version.equals(version)) {
+                return local.context;
+            }
+            json = stringRedisTemplate.opsForValue().get(KEY_PREFIX + sessionId);
+        } catch (Exception e) {
+            log.warn("读取会话上下文失败，会话ID：{}，{}", sessionId, e.getMessage());
+            return localValid ? local.context : null;
+        }
+        if (json == null) {
+            localContexts.remove(sessionId);
+            return null;
+        }
+        ConversationContext context = JSON.parseObject(json, ConversationContext.class);
+        localContexts.put(sessionId, new LocalEntry(context, version == null ? "" : version, now + localTtl * 1000));
+        return context;
+    }
+
+    /**
+     * 保存会话上下文（写穿到Redis）
+     *
+     * @param context
+     */
+    public void save(ConversationContext context) {
+        context.updateLastActiveTime();
+        String version = UUID.randomUUID().toString();
+        localContexts.put(context.getSessionId(), new LocalEntry(context, version, System.currentTimeMillis() + localTtl * 1000));
+        try {
+            // 先写上下文再写版本号，其他节点看到新版本号时一定能读到新上下文
+            stringRedisTemplate.opsForValue().set(KEY_PREFIX + context.getSessionId(), JSON.toJSONString(context),
+                    sessionTimeout, TimeUnit.SECONDS);
+            stringRedisTemplate.opsForValue().set(VERSION_KEY_PREFIX + context.getSessionId(), version,
+                    sessionTimeout, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("保存会话上下文失败，会话ID：{}，{}", context.getSessionId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 删除会话上下文
+     *
+     * @param sessionId
+     */
+    public void remove(String sessionId) {
+        localContexts.remove(sessionId);
+        stringRedisTemplate.delete(Arrays.asList(KEY_PREFIX + sessionId, VERSION_KEY_PREFIX + sessionId));
+    }
+
+    /**
+     * 定时清理本地过期的会话上下文，Redis中的由过期时间自动清理
+     */
+    @Scheduled(fixedDelayString = "#{${ai.conversation.context-cleanup-interval:3600} * 1000}")
+    public void cleanup() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        Iterator<LocalEntry> iterator = localContexts.values().iterator();
+        while (iterator.hasNext()) {
+            LocalEntry entry = iterator.next();
+            if (entry.expireAt <= now || entry.context.isExpired()) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        log.info("清理过期会话上下文{}个，剩余{}个", removed, localContexts.size());
+    }
+
+    private static class LocalEntry {
+        private final ConversationContext context;
+        // 写入Redis时的版本号，与Redis中的不一致说明其他节点已更新
+        private final String version;
+        private final long expireAt;
+
+        private LocalEntry(ConversationContext context, String version, long expireAt) {
+            this.context = context;
+            this.version = version;
+            this.expireAt = expireAt;
+        }
+    }
+}
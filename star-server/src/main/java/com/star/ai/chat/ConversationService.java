@@ -10,15 +10,19 @@ import com.star.mapper.AiConversationMapper;
 import com.star.pojo.entity.AiConversation;
 import com.star.ai.agent.base.AgentRequest;
 import com.star.ai.agent.base.AgentContext;
+import com.star.ai.agent.base.AgentEventListener;
 import com.star.ai.agent.base.AgentResponse;
 import com.star.ai.agent.base.ConversationMessage;
+import com.star.ai.llm.client.LlmCallContext;
+import com.star.ai.llm.client.LlmUsage;
+import com.star.vo.RecommendationResult;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.util.StringUtils;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.stereotype.Service;
 
 /**
@@ -36,8 +40,18 @@ public class ConversationService {
     private ModelServiceManager modelServiceManager;
     @Autowired
     private AiConversationMapper conversationMapper;
+    @Autowired
+    private ConversationSummaryService conversationSummaryService;
+    @Autowired
+    private ConversationContextStore conversationContextStore;
+    @Autowired
+    private ConversationWriteBuffer conversationWriteBuffer;
+    // 每轮加载的最近对话轮数
     @Value("${ai.conversation.history.max:10}")
     private int maxHistory;
+    // 窗口之外尚未合并进摘要的对话最多带入的轮数，与单次合并的上限一致
+    @Value("${ai.conversation.summary.max-batch:20}")
+    private int maxUnsummarized;
     // TODO: 注入对话上下文管理、对话记录等
 
     /**
@@ -45,22 +59,74 @@ public class ConversationService {
      * @param request 对话请求
      * @return 对话回复
      */
-    @Transactional
     public ChatResponse processMessage(ChatRequest request) {
+        return doProcessMessage(request, null);
+    }
+
+    /**
+     * 流式处理AI对话：Agent执行进度与回复Token通过监听器实时推出，返回完整回复
+     * @param request  对话请求
+     * @param listener 事件监听器
+     * @return 对话回复
+     */
+    public ChatResponse processMessageStream(ChatRequest request, AgentEventListener listener) {
+        return doProcessMessage(request, listener);
+    }
+
+    private ChatResponse doProcessMessage(ChatRequest request, AgentEventListener listener) {
+        long startTime = System.currentTimeMillis();
         // 1. 获取或创建对话上下文
         String sessionId = request.getSessionId();
         Long userId = request.getUserId();
-        List<AiConversation> historyList = StringUtils.hasText(sessionId) ? conversationMapper.selectBySessionId(sessionId) : Collections.emptyList();
+        ConversationContext conversationContext = StringUtils.hasText(sessionId) ? conversationContextStore.get(sessionId) : null;
         List<ConversationMessage> history = new ArrayList<>();
-        for (AiConversation conv : historyList) {
-            history.add(ConversationMessage.userMessage(conv.getUserMessage()));
-            history.add(ConversationMessage.assistantMessage(conv.getAiResponse()));
+        if (conversationContext != null) {
+            // 热上下文：直接使用缓存的最近对话，不查库
+            int round = conversationContext.getConversationRound() == null ? 0 : conversationContext.getConversationRound();
+            int unsummarized = 0;
+            if (round >= maxHistory) {
+                ConversationSummaryService.SummaryState summaryState = conversationSummaryService.getState(sessionId);
+                appendSummary(history, summaryState);
+                // 滑出窗口但还没合并进摘要的轮数，这部分对话也要带入Prompt；攒够一批时才触发合并
+                long pending = round - maxHistory - summaryState.getCoveredCount();
+                unsummarized = (int) Math.min(maxUnsummarized, Math.max(0, pending));
+                conversationSummaryService.summarizeIfNeeded(sessionId, pending);
+            }
+            history.addAll(conversationContext.getRecentHistory((maxHistory + unsummarized) * 2));
+        } else {
+            // 冷启动：只加载摘要之后的对话，最近maxHistory轮为窗口，更早的是尚未合并进摘要的部分，每轮的查询量和Prompt长度不随会话变长而增长
+            ConversationSummaryService.SummaryState summaryState = StringUtils.hasText(sessionId)
+                    ? conversationSummaryService.getState(sessionId) : ConversationSummaryService.SummaryState.EMPTY;
+            List<AiConversation> historyList = StringUtils.hasText(sessionId)
+                    ? conversationMapper.selectRecentAfterId(sessionId, summaryState.getCoveredId(), maxHistory + maxUnsummarized)
+                    : Collections.emptyList();
+            List<ConversationMessage> recentMessages = new ArrayList<>();
+            for (AiConversation conv : historyList) {
+                recentMessages.add(ConversationMessage.userMessage(conv.getUserMessage()));
+                recentMessages.add(ConversationMessage.assistantMessage(conv.getAiResponse()));
+            }
+            appendSummary(history, summaryState);
+            if (historyList.size() > maxHistory) {
+                conversationSummaryService.summarizeBeforeAsync(sessionId, historyList.get(historyList.size() - maxHistory).getId());
+            }
+            history.addAll(recentMessages);
+            conversationContext = ConversationContext.builder()
+                    .sessionId(sessionId)
+                    .userId(userId)
+                    .conversationHistory(recentMessages)
+                    .currentState(ConversationContext.ConversationState.INITIAL)
+                    .conversationStartTime(LocalDateTime.now())
+                    .conversationRound((int) summaryState.getCoveredCount() + historyList.size())
+                    .build();
         }
         // 2. 构建Agent上下文
+        LlmUsage llmUsage = new LlmUsage();
         AgentContext agentContext = AgentContext.builder()
                 .sessionId(sessionId)
                 .history(history)
-                .sharedData(new HashMap<>())
+                .sharedData(new ConcurrentHashMap<>())
+                .eventListener(listener)
+                .llmUsage(llmUsage)
                 .build();
         // 3. 构建Agent请求
         AgentRequest agentRequest = AgentRequest.builder()
@@ -70,29 +136,72 @@ public class ConversationService {
                 .parameters(Map.of("userId", userId))
                 .build();
         // 4. 多Agent链路处理
-        AgentResponse agentResponse = agentCoordinator.coordinate(agentRequest, agentContext);
-        // 5. 记录对话历史
+        AgentResponse agentResponse = LlmCallContext.withUsage(llmUsage, () -> agentCoordinator.coordinate(agentRequest, agentContext));
+        Object data = agentResponse.getData();
+        ChatResponse chatResponse = data instanceof ChatResponse ? (ChatResponse) data : new ChatResponse();
+        String aiText = StringUtils.hasText(chatResponse.getMessageText()) ? chatResponse.getMessageText() : agentResponse.getMessage();
+        // 5. 更新并保存会话上下文，下一轮直接从上下文开始
+        if (StringUtils.hasText(sessionId)) {
+            updateConversationContext(conversationContext, request.getMessage(), aiText, agentResponse, agentContext);
+        }
+        // 6. 记录对话历史（异步批量写库，不在对话链路中占用数据库连接）
         AiConversation conversation = new AiConversation();
         conversation.setSessionId(sessionId);
         conversation.setUserId(userId);
         conversation.setUserMessage(request.getMessage());
-        conversation.setAiResponse(agentResponse.getMessage());
+        conversation.setAiResponse(aiText);
         conversation.setConversationContext(agentContext.getSharedData() != null ? agentContext.getSharedData().toString() : null);
         conversation.setConversationState("RECOMMENDATION");
-        conversation.setModelInfo(null); // 可补充模型调用信息
-        conversation.setResponseTime(null); // 可补充响应时间
-        conversation.setTokenUsage(null); // 可补充token信息
+        conversation.setModelInfo(llmUsage.toModelInfoJson());
+        conversation.setResponseTime((int) (System.currentTimeMillis() - startTime));
+        conversation.setTokenUsage(llmUsage.toTokenUsageJson());
         conversation.setCreatedTime(LocalDateTime.now());
         conversation.setUpdatedTime(LocalDateTime.now());
-        conversationMapper.insert(conversation);
-        // 6. 返回结构化回复
-        Object data = agentResponse.getData();
-        ChatResponse chatResponse = data instanceof ChatResponse ? (ChatResponse) data : new ChatResponse();
+        conversationWriteBuffer.addConversation(conversation);
+        // 7. 返回结构化回复
         chatResponse.setSessionId(sessionId);
         chatResponse.setConversationState("RECOMMENDATION");
         return chatResponse;
     }
 
+    private void appendSummary(List<ConversationMessage> history, ConversationSummaryService.SummaryState summaryState) {
+        if (StringUtils.hasText(summaryState.getSummary())) {
+            history.add(ConversationMessage.systemMessage("此前对话摘要：" + summaryState.getSummary()));
+        }
+    }
+
+    /**
+     * 把本轮对话和Agent产出写回会话上下文并保存
+     */
+    private void updateConversationContext(ConversationContext context, String userMessage, String aiText,
+                                           AgentResponse agentResponse, AgentContext agentContext) {
+        // 同一会话的并发请求共用本地缓存中的同一个上下文对象
+        synchronized (context) {
+            context.addConversationMessage(ConversationMessage.userMessage(userMessage));
+            context.addConversationMessage(ConversationMessage.assistantMessage(aiText));
+            // 多保留尚未合并进摘要的部分，摘要合并前这些对话仍从上下文带入Prompt
+            context.trimHistory((maxHistory + maxUnsummarized) * 2);
+            context.incrementConversationRound();
+            if (agentContext.getSharedData("userRequirement") != null) {
+                context.setUserRequirement(agentContext.getSharedData("userRequirement"));
+            }
+            RecommendationResult recommendationResult = agentContext.getSharedData("recommendationResult");
+            if (recommendationResult != null) {
+                context.setCurrentRecommendations(recommendationResult.getDishes());
+            }
+            if (agentResponse.isNeedMoreInfo()) {
+                context.setCurrentState(ConversationContext.ConversationState.CLARIFYING);
+            } else if (agentResponse.isError()) {
+                context.setCurrentState(ConversationContext.ConversationState.ERROR);
+            } else if (recommendationResult != null) {
+                context.setCurrentState(ConversationContext.ConversationState.RECOMMENDATION_SHOWING);
+            } else {
+                context.setCurrentState(ConversationContext.ConversationState.REQUIREMENT_GATHERING);
+            }
+            conversationContextStore.save(context);
+        }
+    }
+
     /**
      * 查询对话历史
      */
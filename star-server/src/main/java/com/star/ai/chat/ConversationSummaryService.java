@@ -0,0 +1,180 @@
+package com.star.ai.chat;
+
+import com.star.ai.llm.client.LlmCallContext;
+import com.star.entity.AiConversation;
+import com.star.mapper.AiConversationMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对话滚动摘要
+ * 每轮只加载最近N轮对话，更早的对话滚动合并成一段摘要存在Redis，
+ * 摘要记录已覆盖到的对话id和轮数，滑出窗口的对话攒够一批后在后台合并，不占用对话响应时间；
+ * 尚未合并的对话由调用方连同窗口一起带入Prompt，不会在摘要和窗口之间丢失。
+ */
+@Service
+@Slf4j
+public class ConversationSummaryService {
+
+    private static final String KEY_PREFIX = "ai:conversation:summary:";
+    private static final String FIELD_SUMMARY = "summary";
+    private static final String FIELD_COVERED_ID = "coveredId";
+    private static final String FIELD_COVERED_COUNT = "coveredCount";
+
+    @Autowired
+    private ChatClient chatClient;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private AiConversationMapper conversationMapper;
+    @Autowired
+    private ThreadPoolTaskExecutor backgroundExecutor;
+
+    @Value("${ai.conversation.session-timeout:1800}")
+    private long sessionTimeout;
+
+    // 历史窗口轮数，窗口之前的对话进入摘要
+    @Value("${ai.conversation.history.max:10}")
+    private int maxHistory;
+
+    // 滑出窗口的对话至少攒够这么多轮才合并一次，避免每轮都调用大模型
+    @Value("${ai.conversation.summary.min-batch:5}")
+    private int minBatch;
+
+    @Value("${ai.conversation.summary.max-batch:20}")
+    private int maxBatch;
+
+    // 本节点正在合并摘要的会话，同一会话不并发合并
+    private final Set<String> summarizing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 获取会话摘要及其覆盖范围，没有摘要时返回空状态
+     *
+     * @param sessionId
+     * @return
+     */
+    public SummaryState getState(String sessionId) {
+        try {
+            List<Object> values = stringRedisTemplate.opsForHash().multiGet(KEY_PREFIX + sessionId,
+                    Arrays.asList(FIELD_SUMMARY, FIELD_COVERED_ID, FIELD_COVERED_COUNT));
+            return new SummaryState((String) values.get(0), parseLong(values.get(1)), parseLong(values.get(2)));
+        } catch (Exception e) {
+            log.warn("读取对话摘要失败，会话ID：{}，{}", sessionId, e.getMessage());
+            return SummaryState.EMPTY;
+        }
+    }
+
+    /**
+     * 滑出窗口但尚未合并的对话攒够一批时才在后台合并，未攒够时不做任何查询
+     *
+     * @param sessionId     会话ID
+     * @param unsummarized  窗口之前尚未合并进摘要的轮数
+     */
+    public void summarizeIfNeeded(String sessionId, long unsummarized) {
+        if (unsummarized >= minBatch) {
+            summarizeBeforeAsync(sessionId, null);
+        }
+    }
+
+    /**
+     * 把窗口之前尚未合并的对话合并进摘要（异步）
+     *
+     * @param sessionId     会话ID
+     * @param windowStartId 当前历史窗口中最早一轮对话的id，该id之前的对话需要进入摘要；为null时在后台查询确定
+     */
+    public void summarizeBeforeAsync(String sessionId, Long windowStartId) {
+        if (!StringUtils.hasText(sessionId) || !summarizing.add(sessionId)) {
+            return;
+        }
+        backgroundExecutor.execute(() -> {
+            try {
+                summarizeBefore(sessionId, windowStartId);
+            } catch (Exception e) {
+                log.warn("合并对话摘要失败，会话ID：{}，{}", sessionId, e.getMessage());
+            } finally {
+                summarizing.remove(sessionId);
+            }
+        });
+    }
+
+    private void summarizeBefore(String sessionId, Long windowStartId) {
+        if (windowStartId == null) {
+            List<AiConversation> recent = conversationMapper.selectRecentBySessionId(sessionId, maxHistory);
+            if (recent.size() < maxHistory) {
+                return;
+            }
+            windowStartId = recent.get(0).getId();
+        }
+        String key = KEY_PREFIX + sessionId;
+        Map<Object, Object> current = stringRedisTemplate.opsForHash().entries(key);
+        String summary = (String) current.get(FIELD_SUMMARY);
+        long coveredId = parseLong(current.get(FIELD_COVERED_ID));
+        long coveredCount = parseLong(current.get(FIELD_COVERED_COUNT));
+
+        List<AiConversation> pending = conversationMapper.selectBySessionIdBetween(sessionId, coveredId, windowStartId, maxBatch);
+        if (pending.size() < minBatch) {
+            return;
+        }
+
+        StringBuilder dialog = new StringBuilder();
+        for (AiConversation conv : pending) {
+            dialog.append("用户：").append(conv.getUserMessage()).append("\n");
+            dialog.append("助手：").append(conv.getAiResponse()).append("\n");
+        }
+        String summaryPrompt = String.format("""
+            请把已有摘要和新增对话合并为一段新的对话摘要，保留用户的用餐人数、预算、口味、忌口、已确认或已拒绝的菜品等关键信息，
+            不超过200字，只返回摘要内容。
+
+            已有摘要：%s
+
+            新增对话：
+            %s
+            """, StringUtils.hasText(summary) ? summary : "无", dialog);
+
+        String newSummary = LlmCallContext.with("conversation-summary", () -> chatClient.call(summaryPrompt));
+        if (!StringUtils.hasText(newSummary)) {
+            return;
+        }
+
+        Map<String, String> values = new HashMap<>();
+        values.put(FIELD_SUMMARY, newSummary.trim());
+        values.put(FIELD_COVERED_ID, String.valueOf(pending.get(pending.size() - 1).getId()));
+        values.put(FIELD_COVERED_COUNT, String.valueOf(coveredCount + pending.size()));
+        stringRedisTemplate.opsForHash().putAll(key, values);
+        stringRedisTemplate.expire(key, sessionTimeout, TimeUnit.SECONDS);
+        log.debug("对话摘要已更新，会话ID：{}，合并{}轮", sessionId, pending.size());
+    }
+
+    private static long parseLong(Object value) {
+        return value == null ? 0L : Long.parseLong(value.toString());
+    }
+
+    /**
+     * 摘要状态：摘要内容、已覆盖到的对话id、已覆盖的轮数
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SummaryState {
+        public static final SummaryState EMPTY = new SummaryState(null, 0L, 0L);
+
+        private final String summary;
+        private final long coveredId;
+        private final long coveredCount;
+    }
+}
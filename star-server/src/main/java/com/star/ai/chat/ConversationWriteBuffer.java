@@ -0,0 +1,125 @@
+package com.star.ai.chat;
+
+import com.star.entity.AiConversation;
+import com.star.entity.AiRecommendationLog;
+import com.star.mapper.AiConversationMapper;
+import com.star.mapper.AiRecommendationLogMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 对话记录与推荐日志的异步批量写入缓冲
+ * 请求线程只把记录放入有界队列，定时任务批量取出后用多行INSERT写库，对话链路不再占用数据库连接。
+ * 队列满时最多等待 offer-timeout 毫秒，仍放不进则在调用线程同步写入，以限流代替丢数据。
+ */
+@Component
+@Slf4j
+public class ConversationWriteBuffer {
+
+    @Autowired
+    private AiConversationMapper conversationMapper;
+    @Autowired
+    private AiRecommendationLogMapper recommendationLogMapper;
+
+    @Value("${ai.conversation.persistence.queue-capacity:10000}")
+    private int queueCapacity;
+
+    // 单条INSERT最多写入的行数
+    @Value("${ai.conversation.persistence.batch-size:200}")
+    private int batchSize;
+
+    // 队列满时的最长等待时间（毫秒）
+    @Value("${ai.conversation.persistence.offer-timeout:50}")
+    private long offerTimeout;
+
+    private BlockingQueue<AiConversation> conversationQueue;
+    private BlockingQueue<AiRecommendationLog> recommendationLogQueue;
+
+    @PostConstruct
+    public void init() {
+        conversationQueue = new ArrayBlockingQueue<>(queueCapacity);
+        recommendationLogQueue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * 写入对话记录
+     *
+     * @param conversation
+     */
+    public void addConversation(AiConversation conversation) {
+        if (!offer(conversationQueue, conversation)) {
+            log.warn("对话记录写入队列已满，改为同步写入，会话ID：{}", conversation.getSessionId());
+            conversationMapper.insert(conversation);
+        }
+    }
+
+    /**
+     * 写入推荐日志
+     *
+     * @param recommendationLog
+     */
+    public void addRecommendationLog(AiRecommendationLog recommendationLog) {
+        if (!offer(recommendationLogQueue, recommendationLog)) {
+            log.warn("推荐日志写入队列已满，改为同步写入，会话ID：{}", recommendationLog.getSessionId());
+            recommendationLogMapper.insert(recommendationLog);
+        }
+    }
+
+    /**
+     * 定时把队列中的记录批量写库，每次取空队列
+     */
+    @Scheduled(fixedDelayString = "${ai.conversation.persistence.flush-interval:200}")
+    public void flush() {
+        drain(conversationQueue, conversationMapper::insertBatch, conversationMapper::insert, "对话记录");
+        drain(recommendationLogQueue, recommendationLogMapper::insertBatch, recommendationLogMapper::insert, "推荐日志");
+    }
+
+    /**
+     * 停机前写完剩余记录
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private <T> boolean offer(BlockingQueue<T> queue, T item) {
+        try {
+            return queue.offer(item, offerTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private <T> void drain(BlockingQueue<T> queue, Consumer<List<T>> batchInsert, Consumer<T> singleInsert, String name) {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                batchInsert.accept(batch);
+            } catch (Exception e) {
+                // 批量失败时逐条重试，避免一条坏数据拖累整批
+                log.error("{}批量写入失败，逐条重试，数量：{}", name, batch.size(), e);
+                for (T item : batch) {
+                    try {
+                        singleInsert.accept(item);
+                    } catch (Exception ex) {
+                        log.error("{}写入失败，已丢弃：{}", name, item, ex);
+                    }
+                }
+            }
+            batch.clear();
+        }
+    }
+}
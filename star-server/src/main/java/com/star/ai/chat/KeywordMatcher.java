@@ -0,0 +1,91 @@
+package com.star.ai.chat;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * 多关键词匹配器（Aho-Corasick自动机）
+ * 构建一次后线程安全，一次扫描文本即可找出所有出现的关键词（含相互重叠的，如“满意”与“不满意”）。
+ */
+public class KeywordMatcher {
+
+    private final Node root = new Node();
+
+    public KeywordMatcher(Collection<String> keywords) {
+        for (String keyword : keywords) {
+            insert(keyword);
+        }
+        buildFailureLinks();
+    }
+
+    /**
+     * 找出文本中出现的所有关键词
+     *
+     * @param text 文本
+     * @return 出现过的关键词
+     */
+    public Set<String> findAll(String text) {
+        Set<String> found = new HashSet<>();
+        Node current = root;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            while (current != root && !current.children.containsKey(c)) {
+                current = current.fail;
+            }
+            current = current.children.getOrDefault(c, root);
+            for (Node n = current.keyword != null ? current : current.outputLink; n != null; n = n.outputLink) {
+                found.add(n.keyword);
+            }
+        }
+        return found;
+    }
+
+    private void insert(String keyword) {
+        if (keyword == null || keyword.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        for (int i = 0; i < keyword.length(); i++) {
+            node = node.children.computeIfAbsent(keyword.charAt(i), k -> new Node());
+        }
+        node.keyword = keyword;
+    }
+
+    /**
+     * 按层序建立失败指针；outputLink指向失败链上最近的关键词结尾节点，匹配时沿它收集重叠的关键词
+     */
+    private void buildFailureLinks() {
+        Queue<Node> queue = new ArrayDeque<>();
+        for (Node child : root.children.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+                char c = entry.getKey();
+                Node child = entry.getValue();
+                Node fail = node.fail;
+                while (fail != root && !fail.children.containsKey(c)) {
+                    fail = fail.fail;
+                }
+                Node target = fail.children.get(c);
+                child.fail = target != null ? target : root;
+                child.outputLink = child.fail.keyword != null ? child.fail : child.fail.outputLink;
+                queue.add(child);
+            }
+        }
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private Node fail;
+        private Node outputLink;
+        private String keyword;
+    }
+}
@@ -66,14 +66,61 @@ public class MessageProcessor {
         POSITIVE, NEGATIVE, NEUTRAL
     }
     
-    private static final Map<String, MessageType> INTENT_PATTERNS = new HashMap<>();
+    /**
+     * 意图规则，按声明顺序匹配，先命中者生效
+     * 只有一组关键词的规则走关键词匹配器，需要先后顺序的规则使用预编译正则
+     */
+    private static final List<IntentRule> INTENT_RULES = new ArrayList<>();
     private static final Map<String, List<String>> SENTIMENT_KEYWORDS = new HashMap<>();
     
+    private static final String[] TASTE_KEYWORDS = {"辣", "甜", "酸", "咸", "清淡", "重口", "麻", "香"};
+    private static final String[] CUISINE_KEYWORDS = {"川菜", "粤菜", "湘菜", "鲁菜", "苏菜", "浙菜", "闽菜", "徽菜", "东北菜", "西餐"};
+    private static final String[] RESTRICTION_KEYWORDS = {"素食", "不吃肉", "不吃辣", "不吃海鲜", "不吃牛肉", "不吃猪肉"};
+    // 用餐目的：关键词 -> 目的，按顺序判断
+    private static final String[][] PURPOSE_KEYWORDS = {
+        {"聚餐", "聚餐"}, {"聚会", "聚餐"},
+        {"商务", "商务"}, {"工作", "商务"},
+        {"约会", "约会"}, {"情侣", "约会"},
+        {"家庭", "家庭"}, {"家人", "家庭"},
+        {"快餐", "快餐"}, {"快速", "快餐"}
+    };
+    
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+    private static final Pattern PEOPLE_COUNT_PATTERN = Pattern.compile("(\\d+)\\s*[个]?人");
+    private static final Pattern BUDGET_PATTERN = Pattern.compile("(\\d+)\\s*[元块钱]");
+    
+    /**
+     * 预处理的单字符映射：表情 -> 文字标记，中文数字 -> 阿拉伯数字（“十”单独处理）
+     */
+    private static final Map<Integer, String> CHAR_MAPPING = new HashMap<>();
+    
+    /**
+     * 所有关键词（意图、情感、需求提取）共用一个匹配器，一次扫描得到全部命中
+     */
+    private static final KeywordMatcher KEYWORD_MATCHER;
+    
     static {
         // 初始化意图识别模式
         initIntentPatterns();
         // 初始化情感关键词
         initSentimentKeywords();
+        // 初始化预处理字符映射
+        initCharMapping();
+        
+        Set<String> keywords = new HashSet<>();
+        for (IntentRule rule : INTENT_RULES) {
+            if (rule.keywords != null) {
+                keywords.addAll(rule.keywords);
+            }
+        }
+        SENTIMENT_KEYWORDS.values().forEach(keywords::addAll);
+        keywords.addAll(Arrays.asList(TASTE_KEYWORDS));
+        keywords.addAll(Arrays.asList(CUISINE_KEYWORDS));
+        keywords.addAll(Arrays.asList(RESTRICTION_KEYWORDS));
+        for (String[] purpose : PURPOSE_KEYWORDS) {
+            keywords.add(purpose[0]);
+        }
+        KEYWORD_MATCHER = new KeywordMatcher(keywords);
     }
     
     /**
@@ -84,29 +131,52 @@ public class MessageProcessor {
             return "";
         }
         
-        // 1. 去除多余空格和换行
-        String processed = rawMessage.trim().replaceAll("\\s+", " ");
-        
-        // 2. 表情符号处理（简单替换）
-        processed = processed.replaceAll("[😊😄😃😀🙂]", "[开心]");
-        processed = processed.replaceAll("[😔😞😟😢]", "[难过]");
-        processed = processed.replaceAll("[👍👌]", "[满意]");
-        processed = processed.replaceAll("[👎]", "[不满意]");
-        
-        // 3. 数字标准化
-        processed = processed.replaceAll("一", "1");
-        processed = processed.replaceAll("二|两", "2");
-        processed = processed.replaceAll("三", "3");
-        processed = processed.replaceAll("四", "4");
-        processed = processed.replaceAll("五", "5");
-        processed = processed.replaceAll("六", "6");
-        processed = processed.replaceAll("七", "7");
-        processed = processed.replaceAll("八", "8");
-        processed = processed.replaceAll("九", "9");
-        processed = processed.replaceAll("十", "10");
+        // 一次遍历完成：空白合并、表情符号替换、中文数字标准化
+        String text = rawMessage.trim();
+        StringBuilder processed = new StringBuilder(text.length() + 8);
+        boolean lastWhitespace = false;
+        // 上一个输出是否由中文数字转换而来，用于处理“二十”“十五”等
+        boolean lastNumeral = false;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            
+            // 1. 去除多余空格和换行
+            if (Character.isWhitespace(codePoint)) {
+                if (!lastWhitespace) {
+                    processed.append(' ');
+                }
+                lastWhitespace = true;
+                lastNumeral = false;
+                continue;
+            }
+            lastWhitespace = false;
+            
+            // 2. 数字标准化：十位（十五 -> 15，二十 -> 20，二十五 -> 25，十 -> 10）
+            if (codePoint == '十') {
+                if (!lastNumeral) {
+                    processed.append('1');
+                }
+                if (i >= text.length() || !isChineseDigit(text.charAt(i))) {
+                    processed.append('0');
+                }
+                lastNumeral = true;
+                continue;
+            }
+            
+            // 3. 表情符号与个位数字映射
+            String mapped = CHAR_MAPPING.get(codePoint);
+            if (mapped != null) {
+                processed.append(mapped);
+                lastNumeral = isChineseDigit(codePoint);
+            } else {
+                processed.appendCodePoint(codePoint);
+                lastNumeral = false;
+            }
+        }
         
         log.debug("消息预处理：{} -> {}", rawMessage, processed);
-        return processed;
+        return processed.toString();
     }
     
     /**
@@ -114,15 +184,13 @@ public class MessageProcessor {
      */
     public MessageType analyzeMessageType(String message) {
         String lowerMessage = message.toLowerCase();
+        Set<String> hits = KEYWORD_MATCHER.findAll(lowerMessage);
         
-        // 检查各种意图模式
-        for (Map.Entry<String, MessageType> entry : INTENT_PATTERNS.entrySet()) {
-            String pattern = entry.getKey();
-            MessageType type = entry.getValue();
-            
-            if (Pattern.compile(pattern).matcher(lowerMessage).find()) {
-                log.debug("识别消息类型：{} -> {}", message, type);
-                return type;
+        // 按顺序检查各种意图规则
+        for (IntentRule rule : INTENT_RULES) {
+            if (rule.matches(lowerMessage, hits)) {
+                log.debug("识别消息类型：{} -> {}", message, rule.type);
+                return rule.type;
             }
         }
         
@@ -134,6 +202,7 @@ public class MessageProcessor {
      */
     public Map<String, Object> extractKeyInformation(String message) {
         Map<String, Object> keyInfo = new HashMap<>();
+        Set<String> hits = KEYWORD_MATCHER.findAll(message);
         
         // 1. 提取人数信息
         Integer peopleCount = extractPeopleCount(message);
@@ -148,25 +217,25 @@ public class MessageProcessor {
         }
         
         // 3. 提取口味偏好
-        List<String> tastes = extractTastePreferences(message);
+        List<String> tastes = extractTastePreferences(hits);
         if (!tastes.isEmpty()) {
             keyInfo.put("tastePreferences", tastes);
         }
         
         // 4. 提取菜系偏好
-        String cuisine = extractCuisineType(message);
+        String cuisine = extractCuisineType(hits);
         if (cuisine != null) {
             keyInfo.put("cuisineType", cuisine);
         }
         
         // 5. 提取用餐目的
-        String purpose = extractDiningPurpose(message);
+        String purpose = extractDiningPurpose(hits);
         if (purpose != null) {
             keyInfo.put("diningPurpose", purpose);
         }
         
         // 6. 提取饮食禁忌
-        List<String> restrictions = extractDietaryRestrictions(message);
+        List<String> restrictions = extractDietaryRestrictions(hits);
         if (!restrictions.isEmpty()) {
             keyInfo.put("dietaryRestrictions", restrictions);
         }
@@ -179,20 +248,20 @@ public class MessageProcessor {
      * 进行情感分析
      */
     public SentimentType analyzeSentiment(String message) {
-        String lowerMessage = message.toLowerCase();
+        Set<String> hits = KEYWORD_MATCHER.findAll(message.toLowerCase());
         int positiveScore = 0;
         int negativeScore = 0;
         
         // 检查积极关键词
         for (String keyword : SENTIMENT_KEYWORDS.get("positive")) {
-            if (lowerMessage.contains(keyword)) {
+            if (hits.contains(keyword)) {
                 positiveScore++;
             }
         }
         
         // 检查消极关键词
         for (String keyword : SENTIMENT_KEYWORDS.get("negative")) {
-            if (lowerMessage.contains(keyword)) {
+            if (hits.contains(keyword)) {
                 negativeScore++;
             }
         }
@@ -284,28 +353,51 @@ public class MessageProcessor {
     
     private static void initIntentPatterns() {
         // 需求描述类
-        INTENT_PATTERNS.put(".*(我们|我想|想要|需要).*(吃|用餐|点菜|订餐).*", MessageType.REQUIREMENT_DESCRIPTION);
-        INTENT_PATTERNS.put(".*(推荐|介绍|建议).*(菜|美食|料理).*", MessageType.REQUIREMENT_DESCRIPTION);
-        INTENT_PATTERNS.put(".*\\d+.*人.*(吃|用餐).*", MessageType.REQUIREMENT_DESCRIPTION);
+        INTENT_RULES.add(IntentRule.regex("(我们|我想|想要|需要).*(吃|用餐|点菜|订餐)", MessageType.REQUIREMENT_DESCRIPTION));
+        INTENT_RULES.add(IntentRule.regex("(推荐|介绍|建议).*(菜|美食|料理)", MessageType.REQUIREMENT_DESCRIPTION));
+        INTENT_RULES.add(IntentRule.regex("\\d+.*人.*(吃|用餐)", MessageType.REQUIREMENT_DESCRIPTION));
         
         // 确认类
-        INTENT_PATTERNS.put(".*(好的|可以|行|就这些|确定|下单).*", MessageType.CONFIRMATION);
-        INTENT_PATTERNS.put(".*(要了|就要|选择).*(这|那).*", MessageType.CONFIRMATION);
+        INTENT_RULES.add(IntentRule.keywords(MessageType.CONFIRMATION, "好的", "可以", "行", "就这些", "确定", "下单"));
+        INTENT_RULES.add(IntentRule.regex("(要了|就要|选择).*(这|那)", MessageType.CONFIRMATION));
         
         // 询问类
-        INTENT_PATTERNS.put(".*(什么|怎么|如何).*", MessageType.INQUIRY);
-        INTENT_PATTERNS.put(".*(详细|介绍|说说).*(这道|那道|这个|那个).*", MessageType.INQUIRY);
+        INTENT_RULES.add(IntentRule.keywords(MessageType.INQUIRY, "什么", "怎么", "如何"));
+        INTENT_RULES.add(IntentRule.regex("(详细|介绍|说说).*(这道|那道|这个|那个)", MessageType.INQUIRY));
         
         // 反馈类
-        INTENT_PATTERNS.put(".*(好吃|难吃|不错|一般|满意|不满意).*", MessageType.FEEDBACK);
-        INTENT_PATTERNS.put(".*(喜欢|不喜欢|爱吃|不爱吃).*", MessageType.FEEDBACK);
+        INTENT_RULES.add(IntentRule.keywords(MessageType.FEEDBACK, "好吃", "难吃", "不错", "一般", "满意", "不满意"));
+        INTENT_RULES.add(IntentRule.keywords(MessageType.FEEDBACK, "喜欢", "不喜欢", "爱吃", "不爱吃"));
         
         // 修改类
-        INTENT_PATTERNS.put(".*(换个|换一个|不要|别的|其他).*", MessageType.MODIFICATION);
-        INTENT_PATTERNS.put(".*(太贵|太便宜|太辣|不够辣).*", MessageType.MODIFICATION);
+        INTENT_RULES.add(IntentRule.keywords(MessageType.MODIFICATION, "换个", "换一个", "不要", "别的", "其他"));
+        INTENT_RULES.add(IntentRule.keywords(MessageType.MODIFICATION, "太贵", "太便宜", "太辣", "不够辣"));
         
         // 问候类
-        INTENT_PATTERNS.put(".*(你好|您好|hello|hi|早|晚上好).*", MessageType.GREETING);
+        INTENT_RULES.add(IntentRule.keywords(MessageType.GREETING, "你好", "您好", "hello", "hi", "早", "晚上好"));
+    }
+    
+    private static void initCharMapping() {
+        for (String emoji : new String[]{"😊", "😄", "😃", "😀", "🙂"}) {
+            CHAR_MAPPING.put(emoji.codePointAt(0), "[开心]");
+        }
+        for (String emoji : new String[]{"😔", "😞", "😟", "😢"}) {
+            CHAR_MAPPING.put(emoji.codePointAt(0), "[难过]");
+        }
+        for (String emoji : new String[]{"👍", "👌"}) {
+            CHAR_MAPPING.put(emoji.codePointAt(0), "[满意]");
+        }
+        CHAR_MAPPING.put("👎".codePointAt(0), "[不满意]");
+        
+        String digits = "一二三四五六七八九";
+        for (int i = 0; i < digits.length(); i++) {
+            CHAR_MAPPING.put((int) digits.charAt(i), String.valueOf(i + 1));
+        }
+        CHAR_MAPPING.put((int) '两', "2");
+    }
+    
+    private static boolean isChineseDigit(int codePoint) {
+        return codePoint == '两' || "一二三四五六七八九".indexOf(codePoint) >= 0;
     }
     
     private static void initSentimentKeywords() {
@@ -321,8 +413,7 @@ public class MessageProcessor {
     }
     
     private Integer extractPeopleCount(String message) {
-        Pattern pattern = Pattern.compile("(\\d+)\\s*[个]?人");
-        Matcher matcher = pattern.matcher(message);
+        Matcher matcher = PEOPLE_COUNT_PATTERN.matcher(message);
         if (matcher.find()) {
             return Integer.parseInt(matcher.group(1));
         }
@@ -330,59 +421,48 @@ public class MessageProcessor {
     }
     
     private Integer extractBudget(String message) {
-        Pattern pattern = Pattern.compile("(\\d+)\\s*[元块钱]");
-        Matcher matcher = pattern.matcher(message);
+        Matcher matcher = BUDGET_PATTERN.matcher(message);
         if (matcher.find()) {
             return Integer.parseInt(matcher.group(1));
         }
         return null;
     }
     
-    private List<String> extractTastePreferences(String message) {
+    private List<String> extractTastePreferences(Set<String> hits) {
         List<String> tastes = new ArrayList<>();
-        String[] tasteKeywords = {"辣", "甜", "酸", "咸", "清淡", "重口", "麻", "香"};
-        
-        for (String taste : tasteKeywords) {
-            if (message.contains(taste)) {
+        for (String taste : TASTE_KEYWORDS) {
+            if (hits.contains(taste)) {
                 tastes.add(taste);
             }
         }
-        
         return tastes;
     }
     
-    private String extractCuisineType(String message) {
-        String[] cuisines = {"川菜", "粤菜", "湘菜", "鲁菜", "苏菜", "浙菜", "闽菜", "徽菜", "东北菜", "西餐"};
-        
-        for (String cuisine : cuisines) {
-            if (message.contains(cuisine)) {
+    private String extractCuisineType(Set<String> hits) {
+        for (String cuisine : CUISINE_KEYWORDS) {
+            if (hits.contains(cuisine)) {
                 return cuisine;
             }
         }
-        
         return null;
     }
     
-    private String extractDiningPurpose(String message) {
-        if (message.contains("聚餐") || message.contains("聚会")) return "聚餐";
-        if (message.contains("商务") || message.contains("工作")) return "商务";
-        if (message.contains("约会") || message.contains("情侣")) return "约会";
-        if (message.contains("家庭") || message.contains("家人")) return "家庭";
-        if (message.contains("快餐") || message.contains("快速")) return "快餐";
-        
+    private String extractDiningPurpose(Set<String> hits) {
+        for (String[] purpose : PURPOSE_KEYWORDS) {
+            if (hits.contains(purpose[0])) {
+                return purpose[1];
+            }
+        }
         return null;
     }
     
-    private List<String> extractDietaryRestrictions(String message) {
+    private List<String> extractDietaryRestrictions(Set<String> hits) {
         List<String> restrictions = new ArrayList<>();
-        String[] restrictionKeywords = {"素食", "不吃肉", "不吃辣", "不吃海鲜", "不吃牛肉", "不吃猪肉"};
-        
-        for (String restriction : restrictionKeywords) {
-            if (message.contains(restriction)) {
+        for (String restriction : RESTRICTION_KEYWORDS) {
+            if (hits.contains(restriction)) {
                 restrictions.add(restriction);
             }
         }
-        
         return restrictions;
     }
     
@@ -417,8 +497,8 @@ public class MessageProcessor {
     private void formatResponse(ChatResponse response) {
         // 格式化回复文本，确保良好的阅读体验
         if (response.getMessageText() != null) {
-            String formatted = response.getMessageText()
-                    .replaceAll("\\s+", " ")
+            String formatted = WHITESPACE_PATTERN.matcher(response.getMessageText())
+                    .replaceAll(" ")
                     .trim();
             response.setMessageText(formatted);
         }
@@ -430,4 +510,39 @@ public class MessageProcessor {
         response.setFollowUpQuestions(Arrays.asList("您可以重新描述一下需求吗？", "需要我为您推荐一些热门菜品吗？"));
         return response;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 意图规则：关键词任一出现即命中，或预编译正则find命中
+     */
+    private static class IntentRule {
+        private final MessageType type;
+        private final List<String> keywords;
+        private final Pattern pattern;
+        
+        private IntentRule(MessageType type, List<String> keywords, Pattern pattern) {
+            this.type = type;
+            this.keywords = keywords;
+            this.pattern = pattern;
+        }
+        
+        private static IntentRule keywords(MessageType type, String... keywords) {
+            return new IntentRule(type, Arrays.asList(keywords), null);
+        }
+        
+        private static IntentRule regex(String regex, MessageType type) {
+            return new IntentRule(type, null, Pattern.compile(regex));
+        }
+        
+        private boolean matches(String message, Set<String> hits) {
+            if (keywords != null) {
+                for (String keyword : keywords) {
+                    if (hits.contains(keyword)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return pattern.matcher(message).find();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.star.ai.llm.cache;
+
+import com.star.ai.llm.client.LlmCallContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.Generation;
+import org.springframework.ai.chat.StreamingChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 精确匹配缓存的ChatClient装饰器
+ * Prompt规范化（去首尾空白、合并连续空白）后取摘要作为键，本地LRU + Redis两级缓存，
+ * 只缓存通过LlmCallContext标记了调用类型、且配置了 llm.cache.exact.ttl.{调用类型} 的调用，
+ * 适合理解/推理这类给定输入输出确定的步骤；流式调用不走缓存。
+ */
+@Slf4j
+public class CachingChatClient implements ChatClient, StreamingChatClient {
+
+    private static final String KEY_PREFIX = "llm:cache:";
+
+    private final ChatClient delegate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Environment environment;
+    private final int localMaxEntries;
+
+    private final Map<String, LocalEntry> localCache;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    public CachingChatClient(ChatClient delegate, StringRedisTemplate stringRedisTemplate,
+                             Environment environment, int localMaxEntries) {
+        this.delegate = delegate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.environment = environment;
+        this.localMaxEntries = localMaxEntries;
+        // accessOrder=true 的LinkedHashMap即LRU
+        this.localCache = Collections.synchronizedMap(new LinkedHashMap<String, LocalEntry>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalEntry> eldest) {
+                return size() > CachingChatClient.this.localMaxEntries;
+            }
+        });
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        String callType = LlmCallContext.getCallType();
+        long ttlSeconds = ttlOf(callType);
+        if (ttlSeconds <= 0) {
+            return delegate.call(prompt);
+        }
+        Stats stat = stats.computeIfAbsent(callType, k -> new Stats());
+        String key = KEY_PREFIX + callType + ":" + digest(prompt.getContents());
+
+        // 1. 本地缓存
+        long now = System.currentTimeMillis();
+        LocalEntry local = localCache.get(key);
+        if (local != null && local.expireAt > now) {
+            stat.localHits.increment();
+            return toResponse(local.content);
+        }
+
+        // 2. Redis缓存
+        String cached = null;
+        try {
+            cached = stringRedisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            log.warn("读取大模型缓存失败：{}", e.getMessage());
+        }
+        if (cached != null) {
+            stat.redisHits.increment();
+            Long remain = null;
+            try {
+                remain = stringRedisTemplate.getExpire(key, TimeUnit.MILLISECONDS);
+            } catch (Exception ignored) {
+                // 取不到剩余时间时按完整TTL回填本地
+            }
+            long localTtl = remain != null && remain > 0 ? remain : ttlSeconds * 1000;
+            localCache.put(key, new LocalEntry(cached, now + localTtl));
+            return toResponse(cached);
+        }
+
+        // 3. 调用大模型并回填
+        stat.misses.increment();
+        ChatResponse response = delegate.call(prompt);
+        String content = contentOf(response);
+        if (StringUtils.hasText(content)) {
+            localCache.put(key, new LocalEntry(content, now + ttlSeconds * 1000));
+            try {
+                stringRedisTemplate.opsForValue().set(key, content, ttlSeconds, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("写入大模型缓存失败：{}", e.getMessage());
+            }
+        }
+        return response;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        if (delegate instanceof StreamingChatClient) {
+            return ((StreamingChatClient) delegate).stream(prompt);
+        }
+        return Flux.just(delegate.call(prompt));
+    }
+
+    /**
+     * 各调用类型的命中统计
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Stats stat = entry.getValue();
+            long hits = stat.localHits.sum() + stat.redisHits.sum();
+            long misses = stat.misses.sum();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("localHits", stat.localHits.sum());
+            item.put("redisHits", stat.redisHits.sum());
+            item.put("misses", misses);
+            item.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+            result.put(entry.getKey(), item);
+        }
+        return result;
+    }
+
+    private long ttlOf(String callType) {
+        if (callType == null) {
+            return 0;
+        }
+        Long ttl = environment.getProperty("llm.cache.exact.ttl." + callType, Long.class);
+        return ttl == null ? 0 : ttl;
+    }
+
+    /**
+     * 规范化后取摘要：空白差异不影响命中
+     */
+    private static String digest(String prompt) {
+        String normalized = prompt == null ? "" : prompt.trim().replaceAll("\\s+", " ");
+        return DigestUtils.md5DigestAsHex(normalized.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String contentOf(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return null;
+        }
+        return response.getResult().getOutput().getContent();
+    }
+
+    private static ChatResponse toResponse(String content) {
+        return new ChatResponse(Collections.singletonList(new Generation(content)));
+    }
+
+    private static class LocalEntry {
+        private final String content;
+        private final long expireAt;
+
+        private LocalEntry(String content, long expireAt) {
+            this.content = content;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static class Stats {
+        private final LongAdder localHits = new LongAdder();
+        private final LongAdder redisHits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+}
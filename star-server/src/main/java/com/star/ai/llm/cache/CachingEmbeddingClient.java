@@ -0,0 +1,193 @@
+package com.star.ai.llm.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.util.DigestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 按内容摘要缓存向量的EmbeddingClient装饰器
+ * 键为 模型+文本MD5，值为float32小端字节数组直接存Redis（1536维约6KB），
+ * 同一菜品描述、相同的用户查询在有效期内只向量化一次；批量调用用一次MGET取缓存，只对未命中的文本调用模型。
+ */
+@Slf4j
+public class CachingEmbeddingClient implements EmbeddingClient {
+
+    private static final String KEY_PREFIX = "llm:embedding:";
+
+    private final EmbeddingClient delegate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final String model;
+    private final long ttlSeconds;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public CachingEmbeddingClient(EmbeddingClient delegate, StringRedisTemplate stringRedisTemplate,
+                                  String model, long ttlSeconds) {
+        this.delegate = delegate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.model = model;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        // 未命中的文本按原请求的options调用模型，再按输入顺序重新组装响应
+        List<List<Double>> vectors = embedCached(request.getInstructions(), texts -> {
+            EmbeddingResponse response = delegate.call(new EmbeddingRequest(texts, request.getOptions()));
+            List<List<Double>> loaded = new ArrayList<>(texts.size());
+            for (Embedding embedding : response.getResults()) {
+                loaded.add(embedding.getOutput());
+            }
+            return loaded;
+        });
+        List<Embedding> embeddings = new ArrayList<>(vectors.size());
+        for (int i = 0; i < vectors.size(); i++) {
+            embeddings.add(new Embedding(vectors.get(i), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public List<Double> embed(String text) {
+        return embedCached(Collections.singletonList(text), texts -> Collections.singletonList(delegate.embed(texts.get(0)))).get(0);
+    }
+
+    @Override
+    public List<Double> embed(Document document) {
+        // 按参与向量化的内容（正文+元数据）计算键，向量仍交给原实现计算
+        String content = document.getFormattedContent(MetadataMode.EMBED);
+        return embedCached(Collections.singletonList(content), texts -> Collections.singletonList(delegate.embed(document))).get(0);
+    }
+
+    @Override
+    public List<List<Double>> embed(List<String> texts) {
+        return embedCached(texts, delegate::embed);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    /**
+     * 命中统计
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("errors", errors.sum());
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+
+    private List<List<Double>> embedCached(List<String> texts, Function<List<String>, List<List<Double>>> loader) {
+        if (ttlSeconds <= 0 || texts.isEmpty()) {
+            return loader.apply(texts);
+        }
+        byte[][] keys = new byte[texts.size()][];
+        for (int i = 0; i < texts.size(); i++) {
+            keys[i] = key(texts.get(i));
+        }
+
+        // 1. 一次MGET取出所有缓存
+        List<byte[]> cached = null;
+        try {
+            cached = stringRedisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(keys));
+        } catch (Exception e) {
+            errors.increment();
+            log.warn("读取向量缓存失败：{}", e.getMessage());
+        }
+
+        List<List<Double>> result = new ArrayList<>(texts.size());
+        List<Integer> missIndexes = new ArrayList<>();
+        List<String> missTexts = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            byte[] value = cached == null ? null : cached.get(i);
+            if (value != null) {
+                result.add(decode(value));
+            } else {
+                result.add(null);
+                missIndexes.add(i);
+                missTexts.add(texts.get(i));
+            }
+        }
+        hits.add(texts.size() - missIndexes.size());
+        if (missIndexes.isEmpty()) {
+            return result;
+        }
+
+        // 2. 只对未命中的文本调用模型，结果用管道批量写回
+        misses.add(missIndexes.size());
+        List<List<Double>> loaded = loader.apply(missTexts);
+        for (int i = 0; i < missIndexes.size(); i++) {
+            result.set(missIndexes.get(i), loaded.get(i));
+        }
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < missIndexes.size(); i++) {
+                    set(connection, keys[missIndexes.get(i)], encode(loaded.get(i)));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            errors.increment();
+            log.warn("写入向量缓存失败：{}", e.getMessage());
+        }
+        return result;
+    }
+
+    private void set(RedisConnection connection, byte[] key, byte[] value) {
+        connection.stringCommands().set(key, value, Expiration.seconds(ttlSeconds), RedisStringCommands.SetOption.upsert());
+    }
+
+    private byte[] key(String text) {
+        String digest = DigestUtils.md5DigestAsHex(text.getBytes(StandardCharsets.UTF_8));
+        return (KEY_PREFIX + model + ":" + digest).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 向量按float32存储，相对double精度损失对相似度检索无影响，体积减半
+     */
+    private static byte[] encode(List<Double> vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.size() * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (Double v : vector) {
+            buffer.putFloat(v.floatValue());
+        }
+        return buffer.array();
+    }
+
+    private static List<Double> decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        List<Double> vector = new ArrayList<>(bytes.length / Float.BYTES);
+        while (buffer.remaining() >= Float.BYTES) {
+            vector.add((double) buffer.getFloat());
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,239 @@
+package com.star.ai.llm.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 大模型语义缓存
+ * 把调用方给出的语义键（如用户消息）向量化，在同一命名空间内找最相近的历史语义键，
+ * 相似度达到阈值且未过期时直接返回缓存的回复，否则调用大模型并写入缓存。
+ * 人数、预算等数字在向量上几乎没有区分度，调用方可另给一个精确键，只有精确键相同的条目才参与相似度匹配。
+ * 按命名空间（Agent/调用场景）开启，未开启的命名空间直接调用大模型。
+ */
+@Component
+@Slf4j
+public class SemanticResponseCache {
+
+    @Autowired
+    private EmbeddingClient embeddingClient;
+
+    @Value("${llm.cache.semantic.enabled:true}")
+    private boolean enabled;
+
+    // 开启语义缓存的命名空间，逗号分隔
+    @Value("${llm.cache.semantic.namespaces:}")
+    private String namespaces;
+
+    @Value("${llm.cache.semantic.similarity-threshold:0.95}")
+    private double similarityThreshold;
+
+    @Value("${llm.cache.semantic.ttl:3600}")
+    private long ttlSeconds;
+
+    // 每个命名空间最多缓存的条目数，超出后淘汰最早写入的
+    @Value("${llm.cache.semantic.max-entries:1000}")
+    private int maxEntries;
+
+    private final Set<String> enabledNamespaces = new HashSet<>();
+    private final Map<String, VectorIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (String namespace : namespaces.split(",")) {
+            if (StringUtils.hasText(namespace)) {
+                enabledNamespaces.add(namespace.trim());
+            }
+        }
+        log.info("语义缓存{}，开启的命名空间：{}，相似度阈值：{}", enabled ? "已启用" : "未启用", enabledNamespaces, similarityThreshold);
+    }
+
+    /**
+     * 带语义缓存的大模型调用
+     *
+     * @param namespace   命名空间，如 understanding、rag
+     * @param semanticKey 用于相似度匹配的文本，应只包含决定回复内容的可变部分（不含Prompt模板）
+     * @param prompt      完整Prompt
+     * @param chatClient  未命中时使用的大模型客户端
+     * @return 大模型回复
+     */
+    public String call(String namespace, String semanticKey, String prompt, ChatClient chatClient) {
+        return call(namespace, semanticKey, null, prompt, chatClient);
+    }
+
+    /**
+     * 带语义缓存的大模型调用，缓存条目的精确键必须与exactKey相同才能命中
+     *
+     * @param namespace   命名空间
+     * @param semanticKey 用于相似度匹配的文本
+     * @param exactKey    必须完全相同的部分，如规则提取出的人数和预算；为null时只按相似度匹配
+     * @param prompt      完整Prompt
+     * @param chatClient  未命中时使用的大模型客户端
+     * @return 大模型回复
+     */
+    public String call(String namespace, String semanticKey, String exactKey, String prompt, ChatClient chatClient) {
+        if (!isEnabled(namespace) || !StringUtils.hasText(semanticKey)) {
+            return chatClient.call(prompt);
+        }
+        Stats stat = stats.computeIfAbsent(namespace, k -> new Stats());
+
+        float[] vector;
+        try {
+            vector = normalize(embeddingClient.embed(semanticKey));
+        } catch (Exception e) {
+            // 向量化失败不影响主流程，直接调用大模型
+            log.warn("语义缓存向量化失败，命名空间：{}，{}", namespace, e.getMessage());
+            stat.errors.increment();
+            return chatClient.call(prompt);
+        }
+
+        VectorIndex index = indexes.computeIfAbsent(namespace, k -> new VectorIndex());
+        String cached = index.search(vector, exactKey, similarityThreshold);
+        if (cached != null) {
+            stat.hits.increment();
+            log.debug("语义缓存命中，命名空间：{}，语义键：{}", namespace, semanticKey);
+            return cached;
+        }
+
+        stat.misses.increment();
+        String response = chatClient.call(prompt);
+        if (StringUtils.hasText(response)) {
+            index.add(vector, exactKey, response, System.currentTimeMillis() + ttlSeconds * 1000);
+        }
+        return response;
+    }
+
+    /**
+     * 命名空间是否开启了语义缓存
+     */
+    public boolean isEnabled(String namespace) {
+        return enabled && enabledNamespaces.contains(namespace);
+    }
+
+    /**
+     * 各命名空间的命中统计
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Stats stat = entry.getValue();
+            long hits = stat.hits.sum();
+            long misses = stat.misses.sum();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("hits", hits);
+            item.put("misses", misses);
+            item.put("errors", stat.errors.sum());
+            item.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+            VectorIndex index = indexes.get(entry.getKey());
+            item.put("entries", index == null ? 0 : index.size());
+            result.put(entry.getKey(), item);
+        }
+        return result;
+    }
+
+    /**
+     * 清空指定命名空间的缓存
+     */
+    public void evict(String namespace) {
+        indexes.remove(namespace);
+    }
+
+    private static float[] normalize(List<Double> embedding) {
+        float[] vector = new float[embedding.size()];
+        double norm = 0;
+        for (int i = 0; i < vector.length; i++) {
+            double v = embedding.get(i);
+            vector[i] = (float) v;
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] /= norm;
+            }
+        }
+        return vector;
+    }
+
+    private static class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+
+    private static class CacheEntry {
+        private final float[] vector;
+        private final String exactKey;
+        private final String response;
+        private final long expireAt;
+
+        private CacheEntry(float[] vector, String exactKey, String response, long expireAt) {
+            this.vector = vector;
+            this.exactKey = exactKey;
+            this.response = response;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * 单个命名空间的向量索引：条目数有上限，向量已归一化，余弦相似度即点积，线性扫描即可满足千级条目
+     */
+    private class VectorIndex {
+        private final Deque<CacheEntry> entries = new ArrayDeque<>();
+
+        private synchronized String search(float[] vector, String exactKey, double threshold) {
+            long now = System.currentTimeMillis();
+            CacheEntry best = null;
+            double bestScore = threshold;
+            Iterator<CacheEntry> iterator = entries.iterator();
+            while (iterator.hasNext()) {
+                CacheEntry entry = iterator.next();
+                if (entry.expireAt <= now) {
+                    iterator.remove();
+                    continue;
+                }
+                if (entry.vector.length != vector.length || !Objects.equals(entry.exactKey, exactKey)) {
+                    continue;
+                }
+                double score = 0;
+                for (int i = 0; i < vector.length; i++) {
+                    score += entry.vector[i] * vector[i];
+                }
+                if (score >= bestScore) {
+                    bestScore = score;
+                    best = entry;
+                }
+            }
+            return best == null ? null : best.response;
+        }
+
+        private synchronized void add(float[] vector, String exactKey, String response, long expireAt) {
+            entries.addLast(new CacheEntry(vector, exactKey, response, expireAt));
+            while (entries.size() > maxEntries) {
+                entries.pollFirst();
+            }
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+}
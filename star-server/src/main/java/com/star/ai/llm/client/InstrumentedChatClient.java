@@ -0,0 +1,99 @@
+package com.star.ai.llm.client;
+
+import com.star.ai.llm.stats.ModelStatsRecorder;
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.StreamingChatClient;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 记录调用耗时与Token的ChatClient装饰器
+ * 每次调用按 模型+调用类型 计入ModelStatsRecorder，并累加到当前线程绑定的LlmUsage上；
+ * 包在缓存装饰器里面，缓存命中不计为一次模型调用。
+ */
+public class InstrumentedChatClient implements ChatClient, StreamingChatClient {
+
+    // 未通过LlmCallContext标记类型的调用
+    private static final String DEFAULT_CALL_TYPE = "chat";
+
+    private final ChatClient delegate;
+    private final String model;
+    private final ModelStatsRecorder statsRecorder;
+
+    public InstrumentedChatClient(ChatClient delegate, String model, ModelStatsRecorder statsRecorder) {
+        this.delegate = delegate;
+        this.model = model;
+        this.statsRecorder = statsRecorder;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        String callType = statsCallType();
+        LlmUsage usage = LlmCallContext.getUsage();
+        long start = System.currentTimeMillis();
+        ChatResponse response;
+        try {
+            response = delegate.call(prompt);
+        } catch (RuntimeException e) {
+            record(callType, usage, null, System.currentTimeMillis() - start, false);
+            throw e;
+        }
+        record(callType, usage, usageOf(response), System.currentTimeMillis() - start, true);
+        return response;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        if (!(delegate instanceof StreamingChatClient)) {
+            return Flux.just(call(prompt));
+        }
+        String callType = statsCallType();
+        LlmUsage usage = LlmCallContext.getUsage();
+        return Flux.defer(() -> {
+            long start = System.currentTimeMillis();
+            // 流式响应的用量一般在最后一个分片上
+            AtomicReference<Usage> lastUsage = new AtomicReference<>();
+            return ((StreamingChatClient) delegate).stream(prompt)
+                    .doOnNext(chunk -> {
+                        Usage chunkUsage = usageOf(chunk);
+                        if (chunkUsage != null) {
+                            lastUsage.set(chunkUsage);
+                        }
+                    })
+                    .doOnComplete(() -> record(callType, usage, lastUsage.get(), System.currentTimeMillis() - start, true))
+                    .doOnError(e -> record(callType, usage, lastUsage.get(), System.currentTimeMillis() - start, false));
+        });
+    }
+
+    private void record(String callType, LlmUsage usage, Usage tokens, long elapsedMillis, boolean success) {
+        long promptTokens = tokens == null || tokens.getPromptTokens() == null ? 0 : tokens.getPromptTokens();
+        long completionTokens = tokens == null || tokens.getGenerationTokens() == null ? 0 : tokens.getGenerationTokens();
+        statsRecorder.record(model, callType, promptTokens + completionTokens, elapsedMillis, success);
+        if (usage != null) {
+            usage.record(model, promptTokens, completionTokens, elapsedMillis, success);
+        }
+    }
+
+    /**
+     * 统计按调用场景聚合：understanding-extraction 与 understanding-reasoning 都计入 understanding
+     */
+    private static String statsCallType() {
+        String callType = LlmCallContext.getCallType();
+        if (callType == null) {
+            return DEFAULT_CALL_TYPE;
+        }
+        int dash = callType.indexOf('-');
+        return dash > 0 ? callType.substring(0, dash) : callType;
+    }
+
+    private static Usage usageOf(ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return null;
+        }
+        return response.getMetadata().getUsage();
+    }
+}
@@ -0,0 +1,65 @@
+package com.star.ai.llm.client;
+
+import com.star.ai.llm.stats.ModelStatsRecorder;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 记录调用耗时的EmbeddingClient装饰器，统计计入调用类型 embedding
+ */
+public class InstrumentedEmbeddingClient implements EmbeddingClient {
+
+    private static final String CALL_TYPE = "embedding";
+
+    private final EmbeddingClient delegate;
+    private final String model;
+    private final ModelStatsRecorder statsRecorder;
+
+    public InstrumentedEmbeddingClient(EmbeddingClient delegate, String model, ModelStatsRecorder statsRecorder) {
+        this.delegate = delegate;
+        this.model = model;
+        this.statsRecorder = statsRecorder;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return timed(() -> delegate.call(request));
+    }
+
+    @Override
+    public List<Double> embed(String text) {
+        return timed(() -> delegate.embed(text));
+    }
+
+    @Override
+    public List<Double> embed(Document document) {
+        return timed(() -> delegate.embed(document));
+    }
+
+    @Override
+    public List<List<Double>> embed(List<String> texts) {
+        return timed(() -> delegate.embed(texts));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    private <T> T timed(Supplier<T> call) {
+        long start = System.currentTimeMillis();
+        boolean success = false;
+        try {
+            T result = call.get();
+            success = true;
+            return result;
+        } finally {
+            statsRecorder.record(model, CALL_TYPE, 0, System.currentTimeMillis() - start, success);
+        }
+    }
+}
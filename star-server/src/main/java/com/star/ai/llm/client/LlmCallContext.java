@@ -0,0 +1,89 @@
+package com.star.ai.llm.client;
+
+import java.util.function.Supplier;
+
+/**
+ * 大模型调用上下文
+ * 通过线程变量标记当前调用的类型（如 understanding-extraction），
+ * ChatClient装饰器据此决定缓存策略等，业务代码调用方式不变。
+ * 同时可绑定一个用量累计器，把一次对话内所有大模型调用的耗时和Token汇总到一起。
+ */
+public class LlmCallContext {
+
+    private static final ThreadLocal<String> CALL_TYPE = new ThreadLocal<>();
+    private static final ThreadLocal<LlmUsage> USAGE = new ThreadLocal<>();
+
+    private LlmCallContext() {
+    }
+
+    /**
+     * 以指定调用类型执行，结束后恢复原来的类型
+     *
+     * @param callType 调用类型
+     * @param call     大模型调用
+     * @return 调用结果
+     */
+    public static <T> T with(String callType, Supplier<T> call) {
+        String previous = CALL_TYPE.get();
+        CALL_TYPE.set(callType);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                CALL_TYPE.remove();
+            } else {
+                CALL_TYPE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 当前调用类型，未标记时为null
+     */
+    public static String getCallType() {
+        return CALL_TYPE.get();
+    }
+
+    /**
+     * 绑定用量累计器执行，期间的大模型调用都记到该累计器上
+     *
+     * @param usage 用量累计器
+     * @param call  执行逻辑
+     * @return 执行结果
+     */
+    public static <T> T withUsage(LlmUsage usage, Supplier<T> call) {
+        LlmUsage previous = USAGE.get();
+        USAGE.set(usage);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                USAGE.remove();
+            } else {
+                USAGE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 当前绑定的用量累计器，未绑定时为null
+     */
+    public static LlmUsage getUsage() {
+        return USAGE.get();
+    }
+
+    /**
+     * 把当前线程的调用类型和用量累计器带到其他线程执行的任务中
+     *
+     * @param task 任务
+     * @return 包装后的任务
+     */
+    public static Runnable propagate(Runnable task) {
+        String callType = CALL_TYPE.get();
+        LlmUsage usage = USAGE.get();
+        return () -> withUsage(usage, () -> with(callType, () -> {
+            task.run();
+            return null;
+        }));
+    }
+}
@@ -0,0 +1,66 @@
+package com.star.ai.llm.client;
+
+import com.alibaba.fastjson.JSON;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一次对话内的大模型用量累计
+ * 多个Agent可能在不同线程上并发调用大模型，计数用LongAdder累加。
+ */
+public class LlmUsage {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder promptTokens = new LongAdder();
+    private final LongAdder completionTokens = new LongAdder();
+    private final LongAdder llmTime = new LongAdder();
+    private final Set<String> models = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 记录一次大模型调用
+     *
+     * @param model            模型名称
+     * @param promptTokens     输入Token数
+     * @param completionTokens 输出Token数
+     * @param elapsedMillis    耗时（毫秒）
+     * @param success          是否成功
+     */
+    public void record(String model, long promptTokens, long completionTokens, long elapsedMillis, boolean success) {
+        calls.increment();
+        if (!success) {
+            errors.increment();
+        }
+        this.promptTokens.add(promptTokens);
+        this.completionTokens.add(completionTokens);
+        llmTime.add(elapsedMillis);
+        models.add(model);
+    }
+
+    /**
+     * Token使用情况（JSON），对应 ai_conversation.token_usage
+     */
+    public String toTokenUsageJson() {
+        Map<String, Object> usage = new LinkedHashMap<>();
+        usage.put("promptTokens", promptTokens.sum());
+        usage.put("completionTokens", completionTokens.sum());
+        usage.put("totalTokens", promptTokens.sum() + completionTokens.sum());
+        return JSON.toJSONString(usage);
+    }
+
+    /**
+     * 模型调用信息（JSON），对应 ai_conversation.model_info
+     */
+    public String toModelInfoJson() {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("models", models);
+        info.put("calls", calls.sum());
+        info.put("errors", errors.sum());
+        info.put("llmTime", llmTime.sum());
+        return JSON.toJSONString(info);
+    }
+}
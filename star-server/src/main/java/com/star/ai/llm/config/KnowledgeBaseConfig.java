@@ -0,0 +1,24 @@
+package com.star.ai.llm.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多知识库配置类
+ * 每个知识库独立建索引，按路由关键词决定一次查询检索哪些知识库。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "llm.rag.knowledge-base")
+@Data
+public class KnowledgeBaseConfig {
+    /** 查询未命中任何路由关键词时检索的知识库 */
+    private List<String> defaultBases = new ArrayList<>(List.of("dishes"));
+    /** 知识库名 -> 路由关键词 */
+    private Map<String, List<String>> routes = new LinkedHashMap<>();
+}
@@ -7,6 +7,15 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.ai.chat.ChatClient;
 import org.springframework.ai.embedding.EmbeddingClient;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import com.star.ai.llm.cache.CachingChatClient;
+import com.star.ai.llm.cache.CachingEmbeddingClient;
+import com.star.ai.llm.client.InstrumentedChatClient;
+import com.star.ai.llm.client.InstrumentedEmbeddingClient;
+import com.star.ai.llm.stats.ModelStatsRecorder;
+import com.star.ai.rag.store.LocalVectorStore;
+import java.nio.file.Paths;
 // OpenAI
 import org.springframework.ai.openai.OpenAiChatClient;
 import org.springframework.ai.openai.OpenAiChatOptions;
@@ -39,16 +48,25 @@ public class LLMApplicationConfig {
 
     /**
      * 配置OpenAI ChatClient
+     * 外层包装精确匹配缓存，按 llm.cache.exact.ttl.{调用类型} 缓存确定性调用；
+     * 内层记录实际发往模型的调用耗时与Token，缓存命中不计入
      */
     @Bean
     @ConditionalOnProperty(name = "llm.provider", havingValue = "openai", matchIfMissing = true)
     public ChatClient openAiChatClient(
             @Value("${spring.ai.openai.api-key:}") String openAiApiKey,
-            @Value("${spring.ai.openai.base-url:https://api.openai.com/v1}") String openAiBaseUrl) {
+            @Value("${spring.ai.openai.base-url:https://api.openai.com/v1}") String openAiBaseUrl,
+            @Value("${spring.ai.openai.chat.options.model:gpt-3.5-turbo}") String model,
+            @Value("${llm.cache.exact.local-max-entries:2000}") int localMaxEntries,
+            StringRedisTemplate stringRedisTemplate,
+            Environment environment,
+            ModelStatsRecorder modelStatsRecorder) {
         OpenAiChatOptions options = OpenAiChatOptions.builder()
-                .withModel("gpt-3.5-turbo")
+                .withModel(model)
                 .build();
-        return new OpenAiChatClient(openAiApiKey, openAiBaseUrl, options);
+        OpenAiChatClient openAiChatClient = new OpenAiChatClient(openAiApiKey, openAiBaseUrl, options);
+        InstrumentedChatClient instrumentedChatClient = new InstrumentedChatClient(openAiChatClient, model, modelStatsRecorder);
+        return new CachingChatClient(instrumentedChatClient, stringRedisTemplate, environment, localMaxEntries);
     }
 
     /**
@@ -71,13 +89,20 @@ public class LLMApplicationConfig {
 
     /**
      * 配置OpenAI EmbeddingClient
+     * 外层按内容摘要缓存向量，内层包装调用统计（计入调用类型 embedding），缓存命中不计入
      */
     @Bean
     @ConditionalOnProperty(name = "llm.provider", havingValue = "openai", matchIfMissing = true)
     public EmbeddingClient openAiEmbeddingClient(
             @Value("${spring.ai.openai.api-key:}") String openAiApiKey,
-            @Value("${spring.ai.openai.base-url:https://api.openai.com/v1}") String openAiBaseUrl) {
-        return new OpenAiEmbeddingClient(openAiApiKey, openAiBaseUrl);
+            @Value("${spring.ai.openai.base-url:https://api.openai.com/v1}") String openAiBaseUrl,
+            @Value("${spring.ai.openai.embedding.options.model:text-embedding-ada-002}") String model,
+            @Value("${llm.rag.embedding.cache-ttl:3600}") long cacheTtl,
+            StringRedisTemplate stringRedisTemplate,
+            ModelStatsRecorder modelStatsRecorder) {
+        InstrumentedEmbeddingClient instrumentedEmbeddingClient =
+                new InstrumentedEmbeddingClient(new OpenAiEmbeddingClient(openAiApiKey, openAiBaseUrl), model, modelStatsRecorder);
+        return new CachingEmbeddingClient(instrumentedEmbeddingClient, stringRedisTemplate, model, cacheTtl);
     }
 
     /**
@@ -98,11 +123,24 @@ public class LLMApplicationConfig {
     //     return new QwenEmbeddingClient(qwenApiKey, ...);
     // }
 
+    /**
+     * 配置进程内VectorStore（默认）
+     * 菜品知识库规模小，进程内检索无网络开销，快照文件保证重启后不必重新向量化
+     */
+    @Bean
+    @ConditionalOnProperty(name = "llm.rag.vector-store.type", havingValue = "local", matchIfMissing = true)
+    public VectorStore localVectorStore(
+            EmbeddingClient embeddingClient,
+            @Value("${llm.rag.vector-store.local.snapshot-path:data/vector-store/dish.snapshot}") String snapshotPath) {
+        return new LocalVectorStore(embeddingClient, Paths.get(snapshotPath));
+    }
+
     /**
      * 配置Milvus VectorStore
      * 推荐使用Milvus 2.x，需先启动Milvus服务并配置好连接参数
      */
     @Bean
+    @ConditionalOnProperty(name = "llm.rag.vector-store.type", havingValue = "milvus")
     public VectorStore vectorStore(
             @Value("${milvus.host:localhost}") String milvusHost,
             @Value("${milvus.port:19530}") int milvusPort) {
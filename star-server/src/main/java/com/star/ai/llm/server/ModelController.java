@@ -1,12 +1,21 @@
 package com.star.ai.llm.server;
 
+import com.star.ai.agent.UnderstandingAgent;
+import com.star.ai.llm.cache.CachingChatClient;
+import com.star.ai.llm.cache.CachingEmbeddingClient;
+import com.star.ai.llm.cache.SemanticResponseCache;
 import com.star.ai.llm.client.ModelServiceManager;
+import com.star.entity.AiModelStats;
+import com.star.mapper.AiModelStatsMapper;
 import com.star.result.Result;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.embedding.EmbeddingClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.util.StringUtils;
 
+import java.time.LocalDate;
 import java.util.*;
 
 /**
@@ -21,6 +30,21 @@ public class ModelController {
     @Autowired
     private ModelServiceManager modelServiceManager;
 
+    @Autowired
+    private SemanticResponseCache semanticResponseCache;
+
+    @Autowired
+    private ChatClient chatClient;
+
+    @Autowired
+    private EmbeddingClient embeddingClient;
+
+    @Autowired
+    private UnderstandingAgent understandingAgent;
+
+    @Autowired
+    private AiModelStatsMapper modelStatsMapper;
+
     /**
      * 获取所有可用的模型列表
      */
@@ -49,6 +73,39 @@ public class ModelController {
         }
     }
 
+    /**
+     * 获取大模型缓存命中统计
+     */
+    @GetMapping("/cache/stats")
+    public Result<Map<String, Object>> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("semantic", semanticResponseCache.getStats());
+        if (chatClient instanceof CachingChatClient) {
+            stats.put("exact", ((CachingChatClient) chatClient).getStats());
+        }
+        if (embeddingClient instanceof CachingEmbeddingClient) {
+            stats.put("embedding", ((CachingEmbeddingClient) embeddingClient).getStats());
+        }
+        return Result.success(stats);
+    }
+
+    /**
+     * 获取某天各模型、各调用类型的调用次数、Token与耗时统计，默认当天
+     */
+    @GetMapping("/stats")
+    public Result<List<AiModelStats>> getModelStats(@RequestParam(required = false) String date) {
+        LocalDate callDate = StringUtils.hasText(date) ? LocalDate.parse(date) : LocalDate.now();
+        return Result.success(modelStatsMapper.selectByDate(callDate));
+    }
+
+    /**
+     * 获取需求理解规则快速路径的命中与耗时统计
+     */
+    @GetMapping("/fast-path/stats")
+    public Result<Map<String, Object>> getFastPathStats() {
+        return Result.success(understandingAgent.getFastPathStats());
+    }
+
     /**
      * 获取特定模型的详细信息
      */
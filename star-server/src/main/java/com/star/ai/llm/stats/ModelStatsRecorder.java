@@ -0,0 +1,151 @@
+package com.star.ai.llm.stats;
+
+import com.star.entity.AiModelStats;
+import com.star.mapper.AiModelStatsMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 大模型调用统计
+ * 每次调用只在内存中按 模型+调用类型+日期 累加，定时把增量批量累加进 ai_model_stats，不产生逐次写库。
+ */
+@Component
+@Slf4j
+public class ModelStatsRecorder {
+
+    @Autowired
+    private AiModelStatsMapper modelStatsMapper;
+
+    private final Map<StatsKey, Counters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次调用
+     *
+     * @param model         模型名称
+     * @param callType      调用类型
+     * @param tokens        Token消耗
+     * @param elapsedMillis 耗时（毫秒）
+     * @param success       是否成功
+     */
+    public void record(String model, String callType, long tokens, long elapsedMillis, boolean success) {
+        Counters c = counters.computeIfAbsent(new StatsKey(model, callType, LocalDate.now()), k -> new Counters());
+        c.calls.increment();
+        c.tokens.add(tokens);
+        c.responseTime.add(elapsedMillis);
+        if (success) {
+            c.success.increment();
+        } else {
+            c.errors.increment();
+        }
+    }
+
+    /**
+     * 定时把内存中的增量写入 ai_model_stats
+     */
+    @Scheduled(fixedDelayString = "${llm.stats.flush-interval:60000}")
+    public void flush() {
+        List<AiModelStats> deltas = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        for (Map.Entry<StatsKey, Counters> entry : counters.entrySet()) {
+            StatsKey key = entry.getKey();
+            Counters c = entry.getValue();
+            // 往日的计数不会再增长，取完后移除
+            if (key.date.isBefore(today)) {
+                counters.remove(key);
+            }
+            long calls = c.calls.sumThenReset();
+            if (calls == 0) {
+                continue;
+            }
+            long responseTime = c.responseTime.sumThenReset();
+            AiModelStats stats = new AiModelStats();
+            stats.setModelName(key.model);
+            stats.setCallType(key.callType);
+            stats.setCallDate(key.date);
+            stats.setCallCount((int) calls);
+            stats.setTotalTokens(c.tokens.sumThenReset());
+            stats.setTotalResponseTime(responseTime);
+            stats.setSuccessCount((int) c.success.sumThenReset());
+            stats.setErrorCount((int) c.errors.sumThenReset());
+            stats.setAvgResponseTime(BigDecimal.valueOf(responseTime).divide(BigDecimal.valueOf(calls), 2, RoundingMode.HALF_UP));
+            deltas.add(stats);
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            modelStatsMapper.upsertBatch(deltas);
+            log.debug("大模型调用统计已写入，条数：{}", deltas.size());
+        } catch (Exception e) {
+            // 写库失败时把增量加回内存，下次一起写
+            log.error("大模型调用统计写入失败，数量：{}", deltas.size(), e);
+            for (AiModelStats stats : deltas) {
+                Counters c = counters.computeIfAbsent(new StatsKey(stats.getModelName(), stats.getCallType(), stats.getCallDate()),
+                        k -> new Counters());
+                c.calls.add(stats.getCallCount());
+                c.tokens.add(stats.getTotalTokens());
+                c.responseTime.add(stats.getTotalResponseTime());
+                c.success.add(stats.getSuccessCount());
+                c.errors.add(stats.getErrorCount());
+            }
+        }
+    }
+
+    /**
+     * 停机前写入剩余统计
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static class StatsKey {
+        private final String model;
+        private final String callType;
+        private final LocalDate date;
+
+        private StatsKey(String model, String callType, LocalDate date) {
+            this.model = model;
+            this.callType = callType;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StatsKey)) {
+                return false;
+            }
+            StatsKey that = (StatsKey) o;
+            return model.equals(that.model) && callType.equals(that.callType) && date.equals(that.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(model, callType, date);
+        }
+    }
+
+    private static class Counters {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder tokens = new LongAdder();
+        private final LongAdder responseTime = new LongAdder();
+        private final LongAdder success = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+}
@@ -0,0 +1,273 @@
+package com.star.ai.rag;
+
+import com.star.constant.StatusConstant;
+import com.star.entity.Dish;
+import com.star.entity.DishTag;
+import com.star.mapper.DishMapper;
+import com.star.mapper.DishTagMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 菜品关键词索引（BM25）
+ * 对菜品名称、描述和标签建内存倒排索引，弥补向量检索对菜名、中文关键词（如“麻婆豆腐”）不敏感的问题。
+ * 中文按相邻两字切分（二元组），英文和数字按整词，名称和标签按权重重复计入词频。
+ * 启动时及每隔 refresh-interval 全量重建，菜品变更时随向量库同步增量更新。
+ */
+@Component
+@Slf4j
+public class DishKeywordIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 3;
+    private static final int TAG_WEIGHT = 2;
+    private static final int PAGE_SIZE = 500;
+
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private DishTagMapper dishTagMapper;
+
+    @Value("${llm.rag.keyword.enabled:true}")
+    private boolean enabled;
+
+    // 菜品id -> 索引条目
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    // 倒排表连同条目快照在变化后整体重建并替换，检索时读取的始终是一致的一份
+    private volatile Postings postings = new Postings(Collections.emptyMap(), Collections.emptyMap(), 0);
+
+    /**
+     * 全量重建
+     */
+    @Scheduled(fixedDelayString = "${llm.rag.keyword.refresh-interval:3600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, Entry> rebuilt = new HashMap<>();
+        long lastId = 0;
+        List<Dish> page;
+        while (!(page = dishMapper.selectPageAfterId(lastId, PAGE_SIZE)).isEmpty()) {
+            lastId = page.get(page.size() - 1).getId();
+            rebuilt.putAll(toEntries(page));
+        }
+        synchronized (this) {
+            entries.clear();
+            entries.putAll(rebuilt);
+            refreshPostings();
+        }
+        log.info("菜品关键词索引重建完成，菜品数：{}，词项数：{}", rebuilt.size(), postings.terms.size());
+    }
+
+    /**
+     * 增量更新指定菜品，已删除或停售的移出索引
+     *
+     * @param dishIds
+     */
+    public void update(List<Long> dishIds) {
+        if (!enabled || dishIds.isEmpty()) {
+            return;
+        }
+        List<Dish> dishes = new ArrayList<>(dishIds.size());
+        for (Long id : dishIds) {
+            Dish dish = dishMapper.getById(id);
+            if (dish != null) {
+                dishes.add(dish);
+            }
+        }
+        Map<Long, Entry> updated = toEntries(dishes);
+        synchronized (this) {
+            for (Long id : dishIds) {
+                Entry entry = updated.get(id);
+                if (entry != null) {
+                    entries.put(id, entry);
+                } else {
+                    entries.remove(id);
+                }
+            }
+            refreshPostings();
+        }
+    }
+
+    /**
+     * BM25检索
+     *
+     * @param query 查询内容
+     * @param topK  返回文档数
+     * @return 按得分降序的文档，元数据中带 bm25Score
+     */
+    public List<Document> search(String query, int topK) {
+        Postings current = postings;
+        int docCount = current.entries.size();
+        if (docCount == 0 || !StringUtils.hasText(query)) {
+            return new ArrayList<>();
+        }
+        Map<Long, Double> scores = new HashMap<>();
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            Map<Long, Integer> posting = current.terms.get(term);
+            if (posting == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (docCount - posting.size() + 0.5) / (posting.size() + 0.5));
+            for (Map.Entry<Long, Integer> p : posting.entrySet()) {
+                Entry entry = current.entries.get(p.getKey());
+                int tf = p.getValue();
+                double norm = tf + K1 * (1 - B + B * entry.length / current.avgLength);
+                scores.merge(p.getKey(), idf * tf * (K1 + 1) / norm, Double::sum);
+            }
+        }
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed());
+        List<Document> result = new ArrayList<>(Math.min(topK, ranked.size()));
+        for (Map.Entry<Long, Double> hit : ranked) {
+            if (result.size() >= topK) {
+                break;
+            }
+            Entry entry = current.entries.get(hit.getKey());
+            Map<String, Object> metadata = new HashMap<>(entry.document.getMetadata());
+            metadata.put("bm25Score", hit.getValue());
+            result.add(new Document(entry.document.getId(), entry.document.getContent(), metadata));
+        }
+        return result;
+    }
+
+    /**
+     * 分词：中文取相邻二元组（单字时取单字），英文和数字取整词并转小写
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder han = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.UnicodeScript.of(cp) == Character.UnicodeScript.HAN) {
+                flushWord(word, tokens);
+                han.appendCodePoint(cp);
+            } else if (Character.isLetterOrDigit(cp)) {
+                flushHan(han, tokens);
+                word.appendCodePoint(Character.toLowerCase(cp));
+            } else {
+                flushHan(han, tokens);
+                flushWord(word, tokens);
+            }
+        }
+        flushHan(han, tokens);
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    private static void flushHan(StringBuilder han, List<String> tokens) {
+        if (han.length() == 0) {
+            return;
+        }
+        int[] cps = han.codePoints().toArray();
+        if (cps.length == 1) {
+            tokens.add(han.toString());
+        }
+        for (int i = 0; i + 1 < cps.length; i++) {
+            tokens.add(new String(cps, i, 2));
+        }
+        han.setLength(0);
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private Map<Long, Entry> toEntries(List<Dish> dishes) {
+        List<Long> ids = new ArrayList<>();
+        for (Dish dish : dishes) {
+            if (StatusConstant.ENABLE.equals(dish.getStatus())) {
+                ids.add(dish.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, List<String>> tagsByDish = new HashMap<>();
+        for (DishTag tag : dishTagMapper.selectByDishIds(ids)) {
+            List<String> tags = tagsByDish.computeIfAbsent(tag.getDishId(), k -> new ArrayList<>());
+            tags.add(tag.getTagName());
+            tags.add(tag.getTagValue());
+        }
+        Map<Long, Entry> result = new HashMap<>();
+        for (Dish dish : dishes) {
+            if (!StatusConstant.ENABLE.equals(dish.getStatus())) {
+                continue;
+            }
+            Map<String, Integer> tf = new HashMap<>();
+            addTerms(tf, dish.getName(), NAME_WEIGHT);
+            addTerms(tf, dish.getDescription(), 1);
+            for (String tag : tagsByDish.getOrDefault(dish.getId(), Collections.emptyList())) {
+                addTerms(tf, tag, TAG_WEIGHT);
+            }
+            int length = tf.values().stream().mapToInt(Integer::intValue).sum();
+            result.put(dish.getId(), new Entry(KnowledgeVectorService.toDocument(dish), tf, length));
+        }
+        return result;
+    }
+
+    private static void addTerms(Map<String, Integer> tf, String text, int weight) {
+        for (String token : tokenize(text)) {
+            tf.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private void refreshPostings() {
+        Map<String, Map<Long, Integer>> terms = new HashMap<>();
+        long totalLength = 0;
+        for (Map.Entry<Long, Entry> e : entries.entrySet()) {
+            totalLength += e.getValue().length;
+            for (Map.Entry<String, Integer> term : e.getValue().termFrequencies.entrySet()) {
+                terms.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(e.getKey(), term.getValue());
+            }
+        }
+        int docCount = entries.size();
+        postings = new Postings(new HashMap<>(entries), terms, docCount == 0 ? 0 : (double) totalLength / docCount);
+    }
+
+    private static class Entry {
+        private final Document document;
+        private final Map<String, Integer> termFrequencies;
+        private final int length;
+
+        private Entry(Document document, Map<String, Integer> termFrequencies, int length) {
+            this.document = document;
+            this.termFrequencies = termFrequencies;
+            this.length = length;
+        }
+    }
+
+    private static class Postings {
+        private final Map<Long, Entry> entries;
+        private final Map<String, Map<Long, Integer>> terms;
+        private final double avgLength;
+
+        private Postings(Map<Long, Entry> entries, Map<String, Map<Long, Integer>> terms, double avgLength) {
+            this.entries = entries;
+            this.terms = terms;
+            this.avgLength = avgLength;
+        }
+    }
+}
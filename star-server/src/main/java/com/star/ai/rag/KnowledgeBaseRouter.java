@@ -0,0 +1,138 @@
+package com.star.ai.rag;
+
+import com.star.ai.chat.KeywordMatcher;
+import com.star.ai.llm.config.KnowledgeBaseConfig;
+import com.star.ai.rag.store.LocalVectorStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 知识库路由
+ * 菜品知识库使用容器中的VectorStore，其余知识库（FAQ、营养、门店政策等）各自一个进程内向量库，快照与菜品快照放在同一目录；
+ * 这些知识库的写入经KnowledgeDocumentSyncBus广播，各节点内容保持一致。
+ * 查询时按路由关键词选出相关的知识库，还没有写入文档的知识库不参与路由，都未命中时检索默认知识库。
+ */
+@Component
+@Slf4j
+public class KnowledgeBaseRouter {
+
+    public static final String DISHES = "dishes";
+
+    @Autowired
+    private KnowledgeBaseConfig knowledgeBaseConfig;
+    @Autowired
+    private VectorStore vectorStore;
+    @Autowired
+    private EmbeddingClient embeddingClient;
+
+    @Value("${llm.rag.vector-store.local.snapshot-path:data/vector-store/dish.snapshot}")
+    private String snapshotPath;
+
+    private final Map<String, VectorStore> stores = new LinkedHashMap<>();
+    private final Map<String, Set<String>> keywordBases = new HashMap<>();
+    private KeywordMatcher keywordMatcher;
+
+    @PostConstruct
+    public void init() {
+        stores.put(DISHES, vectorStore);
+        Path dir = Paths.get(snapshotPath).toAbsolutePath().getParent();
+        for (Map.Entry<String, List<String>> route : knowledgeBaseConfig.getRoutes().entrySet()) {
+            String name = route.getKey();
+            if (!stores.containsKey(name)) {
+                LocalVectorStore store = new LocalVectorStore(embeddingClient, dir.resolve(name + ".snapshot"));
+                store.load();
+                stores.put(name, store);
+            }
+            for (String keyword : route.getValue()) {
+                keywordBases.computeIfAbsent(keyword.trim(), k -> new LinkedHashSet<>()).add(name);
+            }
+        }
+        keywordMatcher = new KeywordMatcher(keywordBases.keySet());
+        log.info("知识库路由初始化完成，知识库：{}", stores.keySet());
+    }
+
+    /**
+     * 选出与查询相关的知识库
+     *
+     * @param query 查询内容
+     * @return 知识库名，按配置顺序
+     */
+    public List<String> route(String query) {
+        Set<String> matched = new LinkedHashSet<>();
+        if (query != null) {
+            for (String keyword : keywordMatcher.findAll(query)) {
+                matched.addAll(keywordBases.get(keyword));
+            }
+        }
+        List<String> result = new ArrayList<>();
+        for (String name : stores.keySet()) {
+            if (matched.contains(name) && isPopulated(name)) {
+                result.add(name);
+            }
+        }
+        return result.isEmpty() ? getDefaultBases() : result;
+    }
+
+    /**
+     * 默认知识库
+     */
+    public List<String> getDefaultBases() {
+        return knowledgeBaseConfig.getDefaultBases();
+    }
+
+    /**
+     * 知识库是否已有文档：菜品知识库可能是外部向量库，始终参与路由；进程内知识库为空时跳过
+     */
+    private boolean isPopulated(String name) {
+        VectorStore store = stores.get(name);
+        return DISHES.equals(name) || !(store instanceof LocalVectorStore) || ((LocalVectorStore) store).size() > 0;
+    }
+
+    /**
+     * 获取知识库
+     *
+     * @param name 知识库名
+     * @return 知识库对应的VectorStore
+     */
+    public VectorStore getStore(String name) {
+        VectorStore store = stores.get(name);
+        if (store == null) {
+            throw new IllegalArgumentException("知识库不存在：" + name);
+        }
+        return store;
+    }
+
+    /**
+     * 定时写入各进程内知识库的快照（菜品知识库由其自身的Bean负责）
+     */
+    @Scheduled(fixedDelayString = "${llm.rag.vector-store.local.snapshot-interval:30000}")
+    public void snapshot() {
+        for (Map.Entry<String, VectorStore> entry : stores.entrySet()) {
+            if (!DISHES.equals(entry.getKey()) && entry.getValue() instanceof LocalVectorStore) {
+                ((LocalVectorStore) entry.getValue()).snapshot();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+}
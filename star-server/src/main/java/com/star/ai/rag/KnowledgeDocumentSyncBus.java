@@ -0,0 +1,120 @@
+package com.star.ai.rag;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 知识库文档写入的集群广播
+ * FAQ、营养、门店政策等知识库是各节点独立的进程内向量库，文档写入和删除通过Redis发布订阅广播，每个节点各自写入本地向量库；
+ * 向量化经过Redis向量缓存，同一文档只有第一个节点真正调用模型。
+ * 广播时不在线的节点（包括之后新加入的节点）收不到这次写入，需要重新写入一次或复制快照文件。
+ */
+@Component
+@Slf4j
+public class KnowledgeDocumentSyncBus implements MessageListener {
+
+    /**
+     * Redis发布订阅频道
+     */
+    public static final String CHANNEL = "ai:rag:knowledge:changed";
+
+    private static final String OP_ADD = "add";
+    private static final String OP_DELETE = "delete";
+
+    @Autowired
+    private KnowledgeBaseRouter knowledgeBaseRouter;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 广播文档写入，所有节点（包括自己）收到后写入本地向量库
+     *
+     * @param knowledgeBase 知识库名
+     * @param documents     文档
+     */
+    public void publishAdd(String knowledgeBase, List<Document> documents) {
+        JSONArray docs = new JSONArray();
+        for (Document document : documents) {
+            JSONObject doc = new JSONObject();
+            doc.put("id", document.getId());
+            doc.put("content", document.getContent());
+            doc.put("metadata", document.getMetadata());
+            docs.add(doc);
+        }
+        JSONObject message = new JSONObject();
+        message.put("op", OP_ADD);
+        message.put("knowledgeBase", knowledgeBase);
+        message.put("documents", docs);
+        publish(message, () -> knowledgeBaseRouter.getStore(knowledgeBase).add(documents));
+    }
+
+    /**
+     * 广播文档删除
+     *
+     * @param knowledgeBase 知识库名
+     * @param docIds        文档id
+     */
+    public void publishDelete(String knowledgeBase, List<String> docIds) {
+        JSONObject message = new JSONObject();
+        message.put("op", OP_DELETE);
+        message.put("knowledgeBase", knowledgeBase);
+        message.put("ids", docIds);
+        publish(message, () -> knowledgeBaseRouter.getStore(knowledgeBase).delete(docIds));
+    }
+
+    /**
+     * 收到其他节点（包括自己）广播的文档变更，写入本节点的向量库
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        JSONObject body = JSON.parseObject(new String(message.getBody(), StandardCharsets.UTF_8));
+        String knowledgeBase = body.getString("knowledgeBase");
+        try {
+            if (OP_ADD.equals(body.getString("op"))) {
+                JSONArray docs = body.getJSONArray("documents");
+                List<Document> documents = new ArrayList<>(docs.size());
+                for (int i = 0; i < docs.size(); i++) {
+                    JSONObject doc = docs.getJSONObject(i);
+                    documents.add(new Document(doc.getString("id"), doc.getString("content"), doc.getJSONObject("metadata")));
+                }
+                knowledgeBaseRouter.getStore(knowledgeBase).add(documents);
+            } else {
+                knowledgeBaseRouter.getStore(knowledgeBase).delete(body.getJSONArray("ids").toJavaList(String.class));
+            }
+        } catch (Exception e) {
+            log.error("知识库文档同步失败，知识库：{}", knowledgeBase, e);
+        }
+    }
+
+    private void publish(JSONObject message, Runnable local) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, message.toJSONString());
+        } catch (Exception e) {
+            // Redis不可用时至少写入本节点
+            log.error("知识库文档广播失败，仅写入本节点，知识库：{}", message.getString("knowledgeBase"), e);
+            local.run();
+        }
+    }
+}
@@ -1,57 +1,416 @@
 package com.star.ai.rag;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.ai.embedding.EmbeddingClient;
 import org.springframework.ai.document.Document;
-import java.util.List;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-// 假设有DishMapper和Dish实体
-import com.star.pojo.entity.Dish;
-import com.star.server.mapper.DishMapper;
+import com.star.constant.StatusConstant;
+import com.star.entity.Dish;
+import com.star.mapper.DishMapper;
+import com.star.ai.rag.store.LocalVectorStore;
 
 /**
  * 知识向量化服务
  * 负责知识库的向量化与存储。
+ * 构建时按id分页流式读取菜品，每页作为一批并发向量化入库，同时在途的批数受限，内存占用与菜品总数无关。
+ * 向量库只收录起售中的菜品，文档id固定为 dish-{菜品id}；全量构建和菜品变更后的增量同步都只重新向量化内容有变化的菜品。
+ * 进程内向量库各节点各自一份，已入库内容直接从本节点的向量库读取比对，快照丢失或落后时会重新向量化；
+ * 外部向量库各节点共享，已入库内容的摘要记在Redis中。
+ * FAQ、营养、门店政策等其他知识库的文档通过 addDocuments/deleteDocuments 写入各自的向量库，进程内知识库的写入广播到所有节点。
  */
 @Service
+@Slf4j
 public class KnowledgeVectorService {
 
     @Autowired
     private VectorStore vectorStore;
 
     @Autowired
-    private EmbeddingClient embeddingClient;
+    private DishMapper dishMapper;
 
     @Autowired
-    private DishMapper dishMapper;
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private DishKeywordIndex dishKeywordIndex;
+
+    @Autowired
+    private KnowledgeBaseRouter knowledgeBaseRouter;
+
+    @Autowired
+    private KnowledgeDocumentSyncBus knowledgeDocumentSyncBus;
+
+    @Autowired
+    private ThreadPoolTaskExecutor backgroundExecutor;
+
+    // 外部向量库时已入库菜品的内容摘要，field为菜品id
+    private static final String CONTENT_HASH_KEY = "ai:rag:dish:hash";
+    private static final String DOC_ID_PREFIX = "dish-";
+
+    // 每批向量化的菜品数
+    @Value("${llm.rag.embedding.batch-size:10}")
+    private int batchSize;
+
+    // 同时向量化的批数
+    @Value("${llm.rag.embedding.concurrency:4}")
+    private int concurrency;
+
+    // 单批失败后的重试次数
+    @Value("${llm.rag.embedding.max-retries:3}")
+    private int maxRetries;
+
+    private final AtomicBoolean building = new AtomicBoolean(false);
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
 
     /**
      * 构建菜品知识向量库
      * 实际获取菜品数据、构建Document、向量化并入库
      */
     public void buildDishVectorDatabase() {
-        // 1. 获取所有菜品数据
-        List<Dish> allDishes = dishMapper.selectAll();
+        if (!building.compareAndSet(false, true)) {
+            log.warn("菜品向量库正在构建中，忽略本次请求");
+            return;
+        }
+        try {
+            total.set(dishMapper.countByMap(new HashMap<>()));
+            succeeded.set(0);
+            skipped.set(0);
+            failed.set(0);
+            log.info("开始构建菜品向量库，菜品总数：{}，批大小：{}，并发数：{}", total.get(), batchSize, concurrency);
+
+            // 1. 按id分页读取菜品，每页一批提交向量化；信号量限制在途批数，读得太快时在这里等待
+            Semaphore inFlight = new Semaphore(concurrency);
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            Set<Long> seenIds = new HashSet<>();
+            long lastId = 0;
+            List<Dish> page;
+            while (!(page = dishMapper.selectPageAfterId(lastId, batchSize)).isEmpty()) {
+                lastId = page.get(page.size() - 1).getId();
+                for (Dish dish : page) {
+                    seenIds.add(dish.getId());
+                }
+                inFlight.acquire();
+                List<Dish> batch = page;
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        embedBatch(batch);
+                    } finally {
+                        inFlight.release();
+                    }
+                }, backgroundExecutor));
+            }
+            // 2. 等待所有批次完成
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            // 3. 移除已被删除的菜品
+            int removed = removeDeletedDishes(seenIds, lastId);
+            log.info("菜品向量库构建完成，成功：{}（其中内容未变跳过{}），失败：{}，移除已删除菜品：{}",
+                    succeeded.get(), skipped.get(), failed.get(), removed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("菜品向量库构建被中断，已完成：{}/{}", succeeded.get(), total.get());
+        } finally {
+            building.set(false);
+        }
+    }
+
+    /**
+     * 对账：已入库但本次构建没有读到的菜品说明已被删除，移除其文档和内容摘要。
+     * 只处理id不超过本次读到的最大id的，构建期间新增的菜品由增量同步负责
+     *
+     * @return 移除的菜品数
+     */
+    private int removeDeletedDishes(Set<Long> seenIds, long maxId) {
+        List<Long> deletedIds = new ArrayList<>();
+        for (Long id : getIndexedDishIds()) {
+            if (id <= maxId && !seenIds.contains(id)) {
+                deletedIds.add(id);
+            }
+        }
+        removeDishes(deletedIds);
+        return deletedIds.size();
+    }
+
+    /**
+     * 构建进度
+     */
+    public Map<String, Object> getBuildProgress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("building", building.get());
+        progress.put("total", total.get());
+        progress.put("succeeded", succeeded.get());
+        progress.put("skipped", skipped.get());
+        progress.put("failed", failed.get());
+        return progress;
+    }
+
+    /**
+     * 增量同步指定菜品：起售中且内容有变化的重新向量化，已删除或停售的从向量库移除
+     *
+     * @param dishIds 发生变更的菜品id
+     */
+    public void syncDishes(List<Long> dishIds) {
+        List<Dish> dishes = new ArrayList<>(dishIds.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : dishIds) {
+            Dish dish = dishMapper.getById(id);
+            if (dish != null) {
+                dishes.add(dish);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        int embedded = indexDishes(dishes);
+        removeDishes(missingIds);
+        dishKeywordIndex.update(dishIds);
+        log.info("菜品向量增量同步完成，变更菜品：{}，重新向量化：{}", dishIds.size(), embedded);
+    }
+
+    /**
+     * 向指定知识库写入文档，id相同的文档会被覆盖
+     * 进程内知识库通过广播写入所有节点（异步完成），外部向量库直接写入
+     *
+     * @param knowledgeBase 知识库名
+     * @param documents     文档
+     */
+    public void addDocuments(String knowledgeBase, List<Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        VectorStore store = knowledgeBaseRouter.getStore(knowledgeBase);
+        if (store instanceof LocalVectorStore) {
+            knowledgeDocumentSyncBus.publishAdd(knowledgeBase, documents);
+        } else {
+            store.add(documents);
+        }
+        log.info("知识库{}写入文档：{}", knowledgeBase, documents.size());
+    }
+
+    /**
+     * 从指定知识库删除文档，进程内知识库同样广播到所有节点
+     *
+     * @param knowledgeBase 知识库名
+     * @param docIds        文档id
+     */
+    public void deleteDocuments(String knowledgeBase, List<String> docIds) {
+        if (docIds.isEmpty()) {
+            return;
+        }
+        VectorStore store = knowledgeBaseRouter.getStore(knowledgeBase);
+        if (store instanceof LocalVectorStore) {
+            knowledgeDocumentSyncBus.publishDelete(knowledgeBase, docIds);
+        } else {
+            store.delete(docIds);
+        }
+        log.info("知识库{}删除文档：{}", knowledgeBase, docIds.size());
+    }
+
+    /**
+     * 向量化并入库一批菜品，失败时按指数退避重试
+     */
+    private void embedBatch(List<Dish> dishes) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                int embedded = indexDishes(dishes);
+                skipped.addAndGet(dishes.size() - embedded);
+                int done = succeeded.addAndGet(dishes.size());
+                log.info("菜品向量化进度：{}/{}", done + failed.get(), total.get());
+                return;
+            } catch (Exception e) {
+                if (attempt >= maxRetries) {
+                    failed.addAndGet(dishes.size());
+                    log.error("菜品向量化失败，已重试{}次，菜品id：{}-{}", maxRetries,
+                            dishes.get(0).getId(), dishes.get(dishes.size() - 1).getId(), e);
+                    return;
+                }
+                log.warn("菜品向量化失败，第{}次重试：{}", attempt + 1, e.getMessage());
+                try {
+                    Thread.sleep(500L << attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    failed.addAndGet(dishes.size());
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 按内容摘要比对后入库：内容未变的跳过，内容变化的先删旧文档再写入，停售的移除
+     *
+     * @return 实际向量化的菜品数
+     */
+    private int indexDishes(List<Dish> dishes) {
+        if (dishes.isEmpty()) {
+            return 0;
+        }
+        List<Long> dishIds = new ArrayList<>(dishes.size());
+        for (Dish dish : dishes) {
+            dishIds.add(dish.getId());
+        }
+        Map<Long, String> oldHashes = getIndexedHashes(dishIds);
+
         List<Document> documents = new ArrayList<>();
-        for (Dish dish : allDishes) {
-            // 2. 构建富文本描述
-            StringBuilder desc = new StringBuilder();
-            desc.append("菜品名称：").append(dish.getName()).append("\n");
-            desc.append("价格：").append(dish.getPrice()).append("元\n");
-            desc.append("描述：").append(dish.getDescription()).append("\n");
-            // 可扩展更多标签、口味、菜系等信息
-            // 3. 创建Document对象
-            Document doc = new Document(desc.toString());
-            doc.getMetadata().put("dishId", dish.getId());
-            doc.getMetadata().put("dishName", dish.getName());
-            doc.getMetadata().put("price", dish.getPrice());
-            doc.getMetadata().put("categoryId", dish.getCategoryId());
+        List<String> staleDocIds = new ArrayList<>();
+        List<Long> disabledIds = new ArrayList<>();
+        Map<String, String> newHashes = new HashMap<>();
+        for (int i = 0; i < dishes.size(); i++) {
+            Dish dish = dishes.get(i);
+            String oldHash = oldHashes.get(dish.getId());
+            if (!StatusConstant.ENABLE.equals(dish.getStatus())) {
+                if (oldHash != null) {
+                    disabledIds.add(dish.getId());
+                }
+                continue;
+            }
+            Document doc = toDocument(dish);
+            String hash = contentHash(doc);
+            if (hash.equals(oldHash)) {
+                continue;
+            }
+            if (oldHash != null) {
+                staleDocIds.add(doc.getId());
+            }
             documents.add(doc);
+            newHashes.put(String.valueOf(dish.getId()), hash);
         }
-        // 4. 批量向量化并存储
-        vectorStore.add(documents);
+
+        removeDishes(disabledIds);
+        if (!documents.isEmpty()) {
+            if (!staleDocIds.isEmpty()) {
+                vectorStore.delete(staleDocIds);
+            }
+            vectorStore.add(documents);
+            if (!isLocalStore()) {
+                stringRedisTemplate.opsForHash().putAll(CONTENT_HASH_KEY, newHashes);
+            }
+        }
+        return documents.size();
+    }
+
+    /**
+     * 从向量库移除菜品，只处理确实入过库的
+     */
+    private void removeDishes(List<Long> dishIds) {
+        if (dishIds.isEmpty()) {
+            return;
+        }
+        Set<Long> indexedIds = getIndexedHashes(dishIds).keySet();
+        List<String> docIds = new ArrayList<>();
+        for (Long id : indexedIds) {
+            docIds.add(DOC_ID_PREFIX + id);
+        }
+        if (docIds.isEmpty()) {
+            return;
+        }
+        vectorStore.delete(docIds);
+        if (!isLocalStore()) {
+            stringRedisTemplate.opsForHash().delete(CONTENT_HASH_KEY, indexedIds.stream().map(String::valueOf).toArray());
+        }
+    }
+
+    /**
+     * 是否为进程内向量库，此时各节点的向量库互相独立
+     */
+    public boolean isLocalStore() {
+        return vectorStore instanceof LocalVectorStore;
+    }
+
+    /**
+     * 已入库菜品的内容摘要，未入库的菜品不在结果中
+     */
+    private Map<Long, String> getIndexedHashes(List<Long> dishIds) {
+        Map<Long, String> hashes = new HashMap<>();
+        if (isLocalStore()) {
+            List<String> docIds = new ArrayList<>(dishIds.size());
+            for (Long id : dishIds) {
+                docIds.add(DOC_ID_PREFIX + id);
+            }
+            Map<String, Document> indexed = ((LocalVectorStore) vectorStore).getDocuments(docIds);
+            for (Long id : dishIds) {
+                Document doc = indexed.get(DOC_ID_PREFIX + id);
+                if (doc != null) {
+                    hashes.put(id, contentHash(doc));
+                }
+            }
+            return hashes;
+        }
+        List<Object> fields = new ArrayList<>(dishIds.size());
+        for (Long id : dishIds) {
+            fields.add(String.valueOf(id));
+        }
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(CONTENT_HASH_KEY, fields);
+        for (int i = 0; i < dishIds.size(); i++) {
+            if (values.get(i) != null) {
+                hashes.put(dishIds.get(i), values.get(i).toString());
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * 所有已入库菜品的id
+     */
+    private List<Long> getIndexedDishIds() {
+        List<Long> ids = new ArrayList<>();
+        if (isLocalStore()) {
+            for (String docId : ((LocalVectorStore) vectorStore).getIds()) {
+                if (docId.startsWith(DOC_ID_PREFIX)) {
+                    ids.add(Long.parseLong(docId.substring(DOC_ID_PREFIX.length())));
+                }
+            }
+            return ids;
+        }
+        for (Object field : stringRedisTemplate.opsForHash().keys(CONTENT_HASH_KEY)) {
+            ids.add(Long.parseLong(field.toString()));
+        }
+        return ids;
+    }
+
+    /**
+     * 入库内容的摘要：文档正文加上参与过滤的元数据
+     */
+    private static String contentHash(Document doc) {
+        String content = doc.getContent() + "|" + doc.getMetadata().get("categoryId");
+        return DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 构建菜品的知识文档，关键词索引也使用同样的文档，检索结果可按id融合
+     */
+    static Document toDocument(Dish dish) {
+        // 构建富文本描述
+        StringBuilder desc = new StringBuilder();
+        desc.append("菜品名称：").append(dish.getName()).append("\n");
+        desc.append("价格：").append(dish.getPrice()).append("元\n");
+        desc.append("描述：").append(dish.getDescription()).append("\n");
+        // 可扩展更多标签、口味、菜系等信息
+        Document doc = new Document(DOC_ID_PREFIX + dish.getId(), desc.toString(), new HashMap<>());
+        doc.getMetadata().put("dishId", dish.getId());
+        doc.getMetadata().put("dishName", dish.getName());
+        doc.getMetadata().put("price", dish.getPrice());
+        doc.getMetadata().put("categoryId", dish.getCategoryId());
+        return doc;
     }
-} 
\ No newline at end of file
+}
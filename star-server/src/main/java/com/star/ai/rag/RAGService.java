@@ -3,8 +3,8 @@ package com.star.ai.rag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.ai.chat.ChatClient;
-import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.ai.vectorstore.SearchRequest;
+import com.star.ai.llm.cache.SemanticResponseCache;
+import com.star.ai.llm.client.LlmCallContext;
 import org.springframework.ai.document.Document;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -20,7 +20,10 @@ public class RAGService {
     private ChatClient chatClient;  // Spring AI ChatClient
 
     @Autowired
-    private VectorStore vectorStore;  // Spring AI VectorStore
+    private VectorSearchService vectorSearchService;
+
+    @Autowired
+    private SemanticResponseCache semanticResponseCache;
 
     /**
      * RAG核心：检索增强生成
@@ -29,12 +32,8 @@ public class RAGService {
      * @return 智能回复
      */
     public String ragGenerate(String userQuery, Object context) {
-        // 1. 向量化查询并检索相关文档（使用Spring AI SearchRequest和Document）
-        List<Document> relevantDocs = vectorStore.similaritySearch(
-                SearchRequest.query(userQuery)
-                        .withTopK(5)
-                        .withSimilarityThreshold(0.7)
-        );
+        // 1. 向量化查询并检索相关文档（按问题内容路由到相关知识库）
+        List<Document> relevantDocs = vectorSearchService.similaritySearch(userQuery, 5, 0.7, null);
 
         // 2. 构建增强上下文
         String enhancedContext = buildEnhancedContext(relevantDocs, context);
@@ -42,8 +41,9 @@ public class RAGService {
         // 3. 构建RAG Prompt
         String ragPrompt = buildRAGPrompt(userQuery, enhancedContext);
 
-        // 4. 大模型生成回复
-        return chatClient.call(ragPrompt);
+        // 4. 大模型生成回复（相近问题且上下文相同时复用已有回复）
+        String semanticKey = context == null ? userQuery : userQuery + "\n" + context;
+        return LlmCallContext.with("rag", () -> semanticResponseCache.call("rag", semanticKey, ragPrompt, chatClient));
     }
 
     /**
@@ -54,11 +54,7 @@ public class RAGService {
      * @return 文档内容列表
      */
     public List<String> searchKnowledge(String query, int topK, double threshold) {
-        List<Document> docs = vectorStore.similaritySearch(
-                SearchRequest.query(query)
-                        .withTopK(topK)
-                        .withSimilarityThreshold(threshold)
-        );
+        List<Document> docs = vectorSearchService.similaritySearch(query, topK, threshold, null);
         return docs.stream().map(Document::getContent).collect(Collectors.toList());
     }
 
@@ -1,21 +1,62 @@
 package com.star.ai.rag;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingClient;
+import com.star.ai.rag.store.LocalVectorStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 向量检索服务
- * 负责基于向量的相似度检索。
+ * 负责基于向量的相似度检索，以及关键词（BM25）与向量结果的混合检索。
+ * 未指定知识库时由KnowledgeBaseRouter选出相关的知识库，多个知识库并行检索后按相似度合并取TopK；
+ * 选出的知识库没有检索到结果时再检索默认知识库。进程内知识库共用同一个查询向量，一次查询只向量化一次。
  */
 @Service
+@Slf4j
 public class VectorSearchService {
 
+    /**
+     * 检索方式
+     */
+    public enum RetrievalMode {
+        // 纯向量相似度
+        VECTOR,
+        // 关键词与向量各取候选，按倒数排名融合（RRF）
+        HYBRID
+    }
+
+    @Autowired
+    private KnowledgeBaseRouter knowledgeBaseRouter;
+
+    @Autowired
+    private DishKeywordIndex dishKeywordIndex;
+
+    @Autowired
+    private EmbeddingClient embeddingClient;
+
+    // RRF常数，越大排名靠后的文档权重衰减越慢
+    @Value("${llm.rag.hybrid.rrf-k:60}")
+    private int rrfK;
+
+    // 每路召回的候选数 = topK * 该倍数
+    @Value("${llm.rag.hybrid.candidate-multiplier:3}")
+    private int candidateMultiplier;
+
     @Autowired
-    private VectorStore vectorStore;
+    private ThreadPoolTaskExecutor backgroundExecutor;
 
     /**
      * 默认参数的相似度检索
@@ -31,14 +72,120 @@ public class VectorSearchService {
      * @param query 查询内容
      * @param topK 返回文档数
      * @param threshold 相似度阈值
-     * @param vectorStoreName 可选知识库名
-     * @return 相似文档列表
+     * @param vectorStoreName 可选知识库名，为空时按查询内容路由
+     * @return 相似文档列表，元数据中带 knowledgeBase
      */
     public List<Document> similaritySearch(String query, int topK, double threshold, String vectorStoreName) {
-        // TODO: 根据vectorStoreName动态切换知识库（如有多知识库实现）
         SearchRequest request = SearchRequest.query(query)
                 .withTopK(topK)
                 .withSimilarityThreshold(threshold);
-        return vectorStore.similaritySearch(request);
+        if (vectorStoreName != null) {
+            return searchBase(vectorStoreName, request, null);
+        }
+        List<String> bases = knowledgeBaseRouter.route(query);
+        List<String> defaultBases = knowledgeBaseRouter.getDefaultBases();
+        // 会检索进程内知识库时先向量化查询，各知识库以及回退检索共用
+        List<Double> embedding = hasLocalStore(bases) || hasLocalStore(defaultBases) ? embeddingClient.embed(query) : null;
+        List<Document> docs = searchBases(bases, request, embedding);
+        if (docs.isEmpty() && !bases.equals(defaultBases)) {
+            docs = searchBases(defaultBases, request, embedding);
+        }
+        return docs;
+    }
+
+    /**
+     * 检索多个知识库并按相似度合并取TopK
+     */
+    private List<Document> searchBases(List<String> bases, SearchRequest request, List<Double> embedding) {
+        if (bases.size() == 1) {
+            return searchBase(bases.get(0), request, embedding);
+        }
+
+        // 多个知识库并行检索，单个知识库失败不影响其余结果
+        List<CompletableFuture<List<Document>>> futures = new ArrayList<>(bases.size());
+        for (String base : bases) {
+            futures.add(CompletableFuture.supplyAsync(() -> searchBase(base, request, embedding), backgroundExecutor)
+                    .exceptionally(e -> {
+                        log.warn("知识库检索失败：{}，{}", base, e.getMessage());
+                        return new ArrayList<>();
+                    }));
+        }
+        List<Document> merged = new ArrayList<>();
+        for (CompletableFuture<List<Document>> future : futures) {
+            merged.addAll(future.join());
+        }
+        // 各知识库的距离都是 1-余弦相似度，可直接比较
+        merged.sort((a, b) -> Double.compare(distance(a), distance(b)));
+        return new ArrayList<>(merged.subList(0, Math.min(request.getTopK(), merged.size())));
+    }
+
+    /**
+     * 按指定方式检索
+     * @param query 查询内容
+     * @param topK 返回文档数
+     * @param threshold 向量相似度阈值
+     * @param mode 检索方式
+     * @return 文档列表，混合检索时元数据中带 rrfScore
+     */
+    public List<Document> search(String query, int topK, double threshold, RetrievalMode mode) {
+        if (mode != RetrievalMode.HYBRID) {
+            return similaritySearch(query, topK, threshold, KnowledgeBaseRouter.DISHES);
+        }
+        int candidates = topK * candidateMultiplier;
+        List<Document> vectorDocs = similaritySearch(query, candidates, threshold, KnowledgeBaseRouter.DISHES);
+        List<Document> keywordDocs = dishKeywordIndex.search(query, candidates);
+        return reciprocalRankFusion(List.of(vectorDocs, keywordDocs), topK);
+    }
+
+    /**
+     * 检索单个知识库，有查询向量且为进程内知识库时直接按向量检索
+     */
+    private List<Document> searchBase(String base, SearchRequest request, List<Double> embedding) {
+        VectorStore store = knowledgeBaseRouter.getStore(base);
+        List<Document> docs = embedding != null && store instanceof LocalVectorStore
+                ? ((LocalVectorStore) store).searchByVector(embedding, request.getTopK(), request.getSimilarityThreshold())
+                : store.similaritySearch(request);
+        for (Document doc : docs) {
+            doc.getMetadata().put("knowledgeBase", base);
+        }
+        return docs;
+    }
+
+    private boolean hasLocalStore(List<String> bases) {
+        for (String base : bases) {
+            if (knowledgeBaseRouter.getStore(base) instanceof LocalVectorStore) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double distance(Document doc) {
+        Object distance = doc.getMetadata().get("distance");
+        return distance instanceof Number ? ((Number) distance).doubleValue() : 1.0;
+    }
+
+    /**
+     * 倒数排名融合：文档得分为其在各路结果中 1/(k+排名) 之和，只看排名，不受各路得分量纲不同的影响
+     */
+    private List<Document> reciprocalRankFusion(List<List<Document>> rankings, int topK) {
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Document> docs = new LinkedHashMap<>();
+        for (List<Document> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Document doc = ranking.get(rank);
+                scores.merge(doc.getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+                docs.putIfAbsent(doc.getId(), doc);
+            }
+        }
+        List<String> ids = new ArrayList<>(docs.keySet());
+        ids.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+        List<Document> result = new ArrayList<>(Math.min(topK, ids.size()));
+        for (String id : ids.subList(0, Math.min(topK, ids.size()))) {
+            Document doc = docs.get(id);
+            doc.getMetadata().put("rrfScore", scores.get(id));
+            result.add(doc);
+        }
+        return result;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,372 @@
+package com.star.ai.rag.store;
+
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内向量库
+ * 菜品规模（千级）下精确的暴力检索已在亚毫秒级，比HNSW等近似索引更简单且没有召回损失：
+ * 向量归一化后连续存放在一个float数组里，检索时顺序做点积（JIT可自动向量化），小顶堆取TopK。
+ * 增删直接修改内存索引（删除时用末尾条目填补空位），有变更时定时写快照文件，启动时内存映射快照一次性读入，
+ * 重启无需重新向量化，也不依赖外部向量数据库。
+ * 不支持SearchRequest中的过滤表达式。
+ */
+@Slf4j
+public class LocalVectorStore implements VectorStore {
+
+    private static final int MAGIC = 0x53564543;
+    private static final int VERSION = 1;
+
+    private final EmbeddingClient embeddingClient;
+    private final Path snapshotPath;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // 第i个文档的向量位于 vectors[i*dimension, (i+1)*dimension)
+    private float[] vectors = new float[0];
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int dimension;
+    private volatile boolean dirty;
+
+    public LocalVectorStore(EmbeddingClient embeddingClient, Path snapshotPath) {
+        this.embeddingClient = embeddingClient;
+        this.snapshotPath = snapshotPath;
+    }
+
+    @Override
+    public void add(List<Document> docs) {
+        if (docs.isEmpty()) {
+            return;
+        }
+        // 向量化在锁外完成，批量调用可命中向量缓存
+        List<String> contents = new ArrayList<>(docs.size());
+        for (Document doc : docs) {
+            contents.add(doc.getFormattedContent(MetadataMode.EMBED));
+        }
+        List<List<Double>> embeddings = embeddingClient.embed(contents);
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < docs.size(); i++) {
+                Document doc = docs.get(i);
+                float[] vector = normalize(embeddings.get(i));
+                if (dimension == 0) {
+                    dimension = vector.length;
+                } else if (dimension != vector.length) {
+                    throw new IllegalArgumentException("向量维度不一致，期望" + dimension + "，实际" + vector.length);
+                }
+                Integer slot = slots.get(doc.getId());
+                if (slot == null) {
+                    slot = documents.size();
+                    documents.add(null);
+                    ensureCapacity(documents.size());
+                    slots.put(doc.getId(), slot);
+                }
+                documents.set(slot, new Document(doc.getId(), doc.getContent(), new HashMap<>(doc.getMetadata())));
+                System.arraycopy(vector, 0, vectors, slot * dimension, dimension);
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Boolean> delete(List<String> idList) {
+        boolean removed = false;
+        lock.writeLock().lock();
+        try {
+            for (String id : idList) {
+                Integer slot = slots.remove(id);
+                if (slot == null) {
+                    continue;
+                }
+                // 用最后一个条目填补被删除的位置，保持向量连续
+                int last = documents.size() - 1;
+                if (slot != last) {
+                    Document moved = documents.get(last);
+                    documents.set(slot, moved);
+                    System.arraycopy(vectors, last * dimension, vectors, slot * dimension, dimension);
+                    slots.put(moved.getId(), slot);
+                }
+                documents.remove(last);
+                removed = true;
+            }
+            if (removed) {
+                dirty = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return Optional.of(removed);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        return searchByVector(embeddingClient.embed(request.getQuery()), request.getTopK(), request.getSimilarityThreshold());
+    }
+
+    /**
+     * 用已向量化的查询检索，同一查询检索多个知识库时只需向量化一次
+     *
+     * @param embedding 查询向量，须与入库时使用同一个EmbeddingClient
+     * @param topK      返回文档数
+     * @param threshold 相似度阈值
+     * @return 相似文档列表，元数据中带 distance
+     */
+    public List<Document> searchByVector(List<Double> embedding, int topK, double threshold) {
+        float[] query = normalize(embedding);
+
+        lock.readLock().lock();
+        try {
+            if (topK <= 0 || documents.isEmpty() || query.length != dimension) {
+                return new ArrayList<>();
+            }
+            // 小顶堆保留得分最高的topK个
+            PriorityQueue<float[]> heap = new PriorityQueue<>(topK + 1, (a, b) -> Float.compare(a[0], b[0]));
+            int count = documents.size();
+            for (int i = 0; i < count; i++) {
+                float score = dot(query, vectors, i * dimension);
+                if (score < threshold) {
+                    continue;
+                }
+                if (heap.size() < topK) {
+                    heap.add(new float[]{score, i});
+                } else if (score > heap.peek()[0]) {
+                    heap.poll();
+                    heap.add(new float[]{score, i});
+                }
+            }
+            Document[] result = new Document[heap.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                float[] top = heap.poll();
+                Document doc = documents.get((int) top[1]);
+                Map<String, Object> metadata = new HashMap<>(doc.getMetadata());
+                metadata.put("distance", 1 - top[0]);
+                result[i] = new Document(doc.getId(), doc.getContent(), metadata);
+            }
+            return new ArrayList<>(Arrays.asList(result));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按id获取已入库的文档，不存在的id不在结果中
+     */
+    public Map<String, Document> getDocuments(List<String> ids) {
+        Map<String, Document> result = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String id : ids) {
+                Integer slot = slots.get(id);
+                if (slot != null) {
+                    Document doc = documents.get(slot);
+                    result.put(id, new Document(doc.getId(), doc.getContent(), new HashMap<>(doc.getMetadata())));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * 当前所有文档id
+     */
+    public List<String> getIds() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(slots.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前文档数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 启动时从快照恢复：内存映射整个文件后批量读入向量
+     */
+    @PostConstruct
+    public void load() {
+        if (!Files.exists(snapshotPath)) {
+            log.info("向量库快照不存在，从空库开始：{}", snapshotPath);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("向量库快照格式不识别，忽略：{}", snapshotPath);
+                return;
+            }
+            int dim = buffer.getInt();
+            int count = buffer.getInt();
+            float[] loaded = new float[count * dim];
+            buffer.asFloatBuffer().get(loaded);
+            buffer.position(buffer.position() + loaded.length * Float.BYTES);
+
+            lock.writeLock().lock();
+            try {
+                dimension = dim;
+                vectors = loaded;
+                documents.clear();
+                slots.clear();
+                for (int i = 0; i < count; i++) {
+                    String id = readString(buffer);
+                    String content = readString(buffer);
+                    Map<String, Object> metadata = JSON.parseObject(readString(buffer));
+                    documents.add(new Document(id, content, metadata));
+                    slots.put(id, i);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("向量库快照加载完成，文档数：{}，维度：{}", count, dim);
+        } catch (Exception e) {
+            log.error("向量库快照加载失败：{}", snapshotPath, e);
+        }
+    }
+
+    /**
+     * 有变更时写快照：锁内复制数据，锁外写临时文件后原子替换
+     */
+    @Scheduled(fixedDelayString = "${llm.rag.vector-store.local.snapshot-interval:30000}")
+    public void snapshot() {
+        if (!dirty) {
+            return;
+        }
+        float[] vectorCopy;
+        List<Document> docCopy;
+        int dim;
+        lock.readLock().lock();
+        try {
+            dirty = false;
+            dim = dimension;
+            docCopy = new ArrayList<>(documents);
+            vectorCopy = Arrays.copyOf(vectors, docCopy.size() * dim);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<byte[]> strings = new ArrayList<>(docCopy.size() * 3);
+        int size = 16 + vectorCopy.length * Float.BYTES;
+        for (Document doc : docCopy) {
+            for (String s : new String[]{doc.getId(), doc.getContent(), JSON.toJSONString(doc.getMetadata())}) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                strings.add(bytes);
+                size += 4 + bytes.length;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(dim).putInt(docCopy.size());
+        buffer.asFloatBuffer().put(vectorCopy);
+        buffer.position(buffer.position() + vectorCopy.length * Float.BYTES);
+        for (byte[] bytes : strings) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        buffer.flip();
+
+        try {
+            if (snapshotPath.getParent() != null) {
+                Files.createDirectories(snapshotPath.getParent());
+            }
+            Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("向量库快照已写入，文档数：{}", docCopy.size());
+        } catch (IOException e) {
+            dirty = true;
+            log.error("向量库快照写入失败：{}", snapshotPath, e);
+        }
+    }
+
+    /**
+     * 停机前写入最后的变更
+     */
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+
+    private void ensureCapacity(int count) {
+        int required = count * dimension;
+        if (vectors.length < required) {
+            vectors = Arrays.copyOf(vectors, Math.max(required, vectors.length * 2));
+        }
+    }
+
+    private static float dot(float[] query, float[] vectors, int offset) {
+        float sum = 0;
+        for (int j = 0; j < query.length; j++) {
+            sum += query[j] * vectors[offset + j];
+        }
+        return sum;
+    }
+
+    private static float[] normalize(List<Double> embedding) {
+        float[] vector = new float[embedding.size()];
+        double norm = 0;
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = embedding.get(i).floatValue();
+            norm += vector[i] * vector[i];
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
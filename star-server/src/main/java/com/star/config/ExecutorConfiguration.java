@@ -0,0 +1,55 @@
+package com.star.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 后台任务线程池
+ * 订单状态推送、菜品向量同步、向量化批次、多知识库并行检索、对话摘要合并、推荐理由生成等后台任务共用，由容器管理，停机时等待在途任务完成后关闭
+ * 定义了Executor后Spring Boot不再自动创建applicationTaskExecutor，这里同名注册，MVC异步请求等默认也使用该线程池
+ */
+@Configuration
+@Slf4j
+public class ExecutorConfiguration {
+
+    @Bean(name = {"backgroundExecutor", "applicationTaskExecutor"})
+    public ThreadPoolTaskExecutor backgroundExecutor(@Value("${star.executor.background.core-size:8}") int coreSize,
+                                                     @Value("${star.executor.background.max-size:16}") int maxSize,
+                                                     @Value("${star.executor.background.queue-capacity:1000}") int queueCapacity) {
+        log.info("开始创建后台任务线程池，核心线程数：{}，最大线程数：{}，队列容量：{}", coreSize, maxSize, queueCapacity);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("background-");
+        // 队列满时由提交线程执行，任务不会丢失
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * AI流式对话线程池：在后台执行整条Agent链路，请求线程立即返回
+     * 队列满时直接拒绝（抛出TaskRejectedException），由接口返回系统繁忙，避免请求无限堆积
+     */
+    @Bean
+    public ThreadPoolTaskExecutor chatStreamExecutor(@Value("${star.executor.chat-stream.core-size:8}") int coreSize,
+                                                     @Value("${star.executor.chat-stream.max-size:32}") int maxSize,
+                                                     @Value("${star.executor.chat-stream.queue-capacity:100}") int queueCapacity) {
+        log.info("开始创建AI流式对话线程池，核心线程数：{}，最大线程数：{}，队列容量：{}", coreSize, maxSize, queueCapacity);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("chat-stream-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
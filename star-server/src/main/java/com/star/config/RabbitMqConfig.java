@@ -16,6 +16,19 @@ public class RabbitMqConfig {
     // 定义路由
     public static final String ROUTING_KEY = "voucher.order";
 
+    // 订单事件（发件箱中继投递）
+    public static final String ORDER_EVENT_EXCHANGE = "order_event_exchange";
+    public static final String ORDER_EVENT_QUEUE = "order_event_queue";
+    public static final String ORDER_EVENT_ROUTING_KEY = "order.event";
+    // 订单事件死信：处理失败的事件先进入重试队列，延迟后回到原队列，超过重试次数进入死信队列留待人工处理
+    public static final String ORDER_EVENT_DLX_EXCHANGE = "order_event_dlx_exchange";
+    public static final String ORDER_EVENT_RETRY_QUEUE = "order_event_retry_queue";
+    public static final String ORDER_EVENT_RETRY_ROUTING_KEY = "order.event.retry";
+    public static final String ORDER_EVENT_DEAD_QUEUE = "order_event_dead_queue";
+    public static final String ORDER_EVENT_DEAD_ROUTING_KEY = "order.event.dead";
+    // 重试队列中的等待时间（毫秒）
+    private static final int ORDER_EVENT_RETRY_DELAY = 5000;
+
     @Bean
     public Exchange exchange() {
         return ExchangeBuilder.directExchange(EXCHANGE).durable(true).build();
@@ -31,4 +44,53 @@ public class RabbitMqConfig {
     public Binding binding() {
         return BindingBuilder.bind(queue()).to(exchange()).with(ROUTING_KEY).noargs();
     }
+
+    @Bean
+    public Exchange orderEventExchange() {
+        return ExchangeBuilder.directExchange(ORDER_EVENT_EXCHANGE).durable(true).build();
+    }
+
+    @Bean
+    public Queue orderEventQueue() {
+        // 消费者拒绝（不重新入队）的消息经死信交换机进入重试队列
+        return QueueBuilder.durable(ORDER_EVENT_QUEUE)
+                .deadLetterExchange(ORDER_EVENT_DLX_EXCHANGE)
+                .deadLetterRoutingKey(ORDER_EVENT_RETRY_ROUTING_KEY)
+                .build();
+    }
+
+    @Bean
+    public Binding orderEventBinding() {
+        return BindingBuilder.bind(orderEventQueue()).to(orderEventExchange()).with(ORDER_EVENT_ROUTING_KEY).noargs();
+    }
+
+    @Bean
+    public Exchange orderEventDlxExchange() {
+        return ExchangeBuilder.directExchange(ORDER_EVENT_DLX_EXCHANGE).durable(true).build();
+    }
+
+    @Bean
+    public Queue orderEventRetryQueue() {
+        // 没有消费者，消息过期后再经死信回到订单事件队列
+        return QueueBuilder.durable(ORDER_EVENT_RETRY_QUEUE)
+                .ttl(ORDER_EVENT_RETRY_DELAY)
+                .deadLetterExchange(ORDER_EVENT_EXCHANGE)
+                .deadLetterRoutingKey(ORDER_EVENT_ROUTING_KEY)
+                .build();
+    }
+
+    @Bean
+    public Binding orderEventRetryBinding() {
+        return BindingBuilder.bind(orderEventRetryQueue()).to(orderEventDlxExchange()).with(ORDER_EVENT_RETRY_ROUTING_KEY).noargs();
+    }
+
+    @Bean
+    public Queue orderEventDeadQueue() {
+        return QueueBuilder.durable(ORDER_EVENT_DEAD_QUEUE).build();
+    }
+
+    @Bean
+    public Binding orderEventDeadBinding() {
+        return BindingBuilder.bind(orderEventDeadQueue()).to(orderEventDlxExchange()).with(ORDER_EVENT_DEAD_ROUTING_KEY).noargs();
+    }
 }
@@ -1,7 +1,11 @@
 package com.star.config;
 
+import com.star.websocket.WebSocketClusterBus;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.web.socket.server.standard.ServerEndpointExporter;
 
 /**
@@ -15,4 +19,17 @@ public class WebSocketConfiguration {
         return new ServerEndpointExporter();
     }
 
+    /**
+     * 订阅WebSocket集群消息频道，多节点部署时每个节点都能收到消息并投递给本地会话
+     * 其他需要集群广播的组件（如菜品向量同步）也向该容器注册各自的频道
+     */
+    @Bean
+    public RedisMessageListenerContainer webSocketListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                    WebSocketClusterBus webSocketClusterBus) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(webSocketClusterBus, new ChannelTopic(WebSocketClusterBus.CHANNEL));
+        return container;
+    }
+
 }
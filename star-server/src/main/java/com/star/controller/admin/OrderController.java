@@ -1,5 +1,6 @@
 package com.star.controller.admin;
 
+import com.star.dto.OrdersBatchDTO;
 import com.star.dto.OrdersCancelDTO;
 import com.star.dto.OrdersConfirmDTO;
 import com.star.dto.OrdersPageQueryDTO;
@@ -8,6 +9,7 @@ import com.star.mapper.OrderMapper;
 import com.star.result.PageResult;
 import com.star.result.Result;
 import com.star.service.OrderService;
+import com.star.vo.OrderBatchResultVO;
 import com.star.vo.OrderStatisticsVO;
 import com.star.vo.OrderVO;
 import io.swagger.annotations.Api;
@@ -131,4 +133,40 @@ public class OrderController {
         orderService.complete(id);
         return Result.success();
     }
-}
\ No newline at end of file
+
+    /**
+     * 批量接单
+     * @param ordersBatchDTO
+     * @return
+     */
+    @PutMapping("/confirm/batch")
+    @ApiOperation("批量接单")
+    public Result<OrderBatchResultVO> confirmBatch(@RequestBody OrdersBatchDTO ordersBatchDTO) {
+        log.info("商家批量接单，订单:{}", ordersBatchDTO.getIds());
+        return Result.success(orderService.confirmBatch(ordersBatchDTO.getIds()));
+    }
+
+    /**
+     * 批量派送
+     * @param ordersBatchDTO
+     * @return
+     */
+    @PutMapping("/delivery/batch")
+    @ApiOperation("批量派送")
+    public Result<OrderBatchResultVO> deliveryBatch(@RequestBody OrdersBatchDTO ordersBatchDTO) {
+        log.info("商家批量派送，订单:{}", ordersBatchDTO.getIds());
+        return Result.success(orderService.deliveryBatch(ordersBatchDTO.getIds()));
+    }
+
+    /**
+     * 批量完成
+     * @param ordersBatchDTO
+     * @return
+     */
+    @PutMapping("/complete/batch")
+    @ApiOperation("批量完成")
+    public Result<OrderBatchResultVO> completeBatch(@RequestBody OrdersBatchDTO ordersBatchDTO) {
+        log.info("商家批量完成，订单:{}", ordersBatchDTO.getIds());
+        return Result.success(orderService.completeBatch(ordersBatchDTO.getIds()));
+    }
+}
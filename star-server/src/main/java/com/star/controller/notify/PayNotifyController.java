@@ -9,13 +9,16 @@ import com.wechat.pay.contrib.apache.httpclient.util.AesUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.entity.ContentType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.BufferedReader;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 支付回调相关接口
@@ -28,6 +31,12 @@ public class PayNotifyController {
     private OrderService orderService;
     @Autowired
     private WeChatProperties weChatProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 微信支付交易号去重，回调重试窗口内直接应答成功
+    private static final String PAY_NOTIFY_KEY = "pay:notify:";
+    private static final Long PAY_NOTIFY_TTL = 1L;
 
     /**
      * 支付成功回调
@@ -37,12 +46,14 @@ public class PayNotifyController {
     @RequestMapping("/paySuccess")
     public void paySuccessNotify(HttpServletRequest request, HttpServletResponse response) throws Exception {
         //读取数据
-        String body = readData(request);
-        log.info("支付成功回调：{}", body);
+        byte[] body = readData(request);
+        if (log.isDebugEnabled()) {
+            log.debug("支付成功回调：{}", new String(body, StandardCharsets.UTF_8));
+        }
 
         //数据解密
         String plainText = decryptData(body);
-        log.info("解密后的文本：{}", plainText);
+        log.debug("解密后的文本：{}", plainText);
 
         JSONObject jsonObject = JSON.parseObject(plainText);
         String outTradeNo = jsonObject.getString("out_trade_no");//商户平台订单号
@@ -51,31 +62,43 @@ public class PayNotifyController {
         log.info("商户平台订单号：{}", outTradeNo);
         log.info("微信支付交易号：{}", transactionId);
 
-        //业务处理，修改订单状态、来单提醒
-        orderService.paySuccess(outTradeNo);
+        if (!StringUtils.hasText(outTradeNo)) {
+            log.warn("支付回调缺少商户平台订单号，拒绝处理");
+            responseFailToWeixin(response);
+            return;
+        }
+
+        //同一交易号的重复回调直接应答，不再进入业务处理；缺少交易号时按订单号去重，避免不同订单共用同一个键
+        String key = StringUtils.hasText(transactionId)
+                ? PAY_NOTIFY_KEY + transactionId
+                : PAY_NOTIFY_KEY + "order:" + outTradeNo;
+        Boolean first = stringRedisTemplate.opsForValue().setIfAbsent(key, outTradeNo, PAY_NOTIFY_TTL, TimeUnit.DAYS);
+        if (Boolean.TRUE.equals(first)) {
+            try {
+                //业务处理，修改订单状态、来单提醒（条件更新，本身也是幂等的）
+                orderService.paySuccess(outTradeNo);
+            } catch (Exception e) {
+                //处理失败时释放去重标记，让微信的下一次重试重新处理
+                stringRedisTemplate.delete(key);
+                throw e;
+            }
+        } else {
+            log.info("重复的支付回调，交易号：{}", transactionId);
+        }
 
         //给微信响应
         responseToWeixin(response);
     }
 
     /**
-     * 读取数据
+     * 读取数据，直接读取字节流，省去逐行解码和拼接
      *
      * @param request
      * @return
      * @throws Exception
      */
-    private String readData(HttpServletRequest request) throws Exception {
-        BufferedReader reader = request.getReader();
-        StringBuilder result = new StringBuilder();
-        String line = null;
-        while ((line = reader.readLine()) != null) {
-            if (result.length() > 0) {
-                result.append("\n");
-            }
-            result.append(line);
-        }
-        return result.toString();
+    private byte[] readData(HttpServletRequest request) throws Exception {
+        return StreamUtils.copyToByteArray(request.getInputStream());
     }
 
     /**
@@ -85,8 +108,8 @@ public class PayNotifyController {
      * @return
      * @throws Exception
      */
-    private String decryptData(String body) throws Exception {
-        JSONObject resultObject = JSON.parseObject(body);
+    private String decryptData(byte[] body) throws Exception {
+        JSONObject resultObject = JSON.parseObject(body, JSONObject.class);
         JSONObject resource = resultObject.getJSONObject("resource");
         String ciphertext = resource.getString("ciphertext");
         String nonce = resource.getString("nonce");
@@ -106,10 +129,22 @@ public class PayNotifyController {
      * @param response
      */
     private void responseToWeixin(HttpServletResponse response) throws Exception{
-        response.setStatus(200);
+        writeResponse(response, 200, "SUCCESS", "SUCCESS");
+    }
+
+    /**
+     * 回调内容无效时给微信响应失败
+     * @param response
+     */
+    private void responseFailToWeixin(HttpServletResponse response) throws Exception{
+        writeResponse(response, 400, "FAIL", "缺少订单号");
+    }
+
+    private void writeResponse(HttpServletResponse response, int status, String code, String message) throws Exception{
+        response.setStatus(status);
         HashMap<Object, Object> map = new HashMap<>();
-        map.put("code", "SUCCESS");
-        map.put("message", "SUCCESS");
+        map.put("code", code);
+        map.put("message", message);
         response.setHeader("Content-type", ContentType.APPLICATION_JSON.toString());
         response.getOutputStream().write(JSONUtils.toJSONString(map).getBytes(StandardCharsets.UTF_8));
         response.flushBuffer();
@@ -2,23 +2,30 @@ package com.star.controller.user;
 
 
 import com.alibaba.fastjson.JSON;
+import com.star.constant.MessageConstant;
+import com.star.context.BaseContext;
 import com.star.dto.OrdersDTO;
 import com.star.dto.OrdersPaymentDTO;
 import com.star.dto.OrdersSubmitDTO;
 import com.star.entity.Orders;
+import com.star.exception.UserNotLoginException;
 import com.star.result.PageResult;
 import com.star.service.OrderService;
 import com.star.vo.OrderPaymentVO;
 import com.star.vo.OrderSubmitVO;
 import com.star.vo.OrderVO;
+import com.star.websocket.OrderStatusSseServer;
+import com.star.websocket.WebSocketClusterBus;
 import com.star.websocket.WebSocketServer;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.models.auth.In;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import com.star.result.Result;
 
 import java.util.HashMap;
@@ -34,7 +41,10 @@ public class OrderController {
     private OrderService orderService;
 
     @Autowired
-    WebSocketServer webSocketServer;
+    WebSocketClusterBus webSocketClusterBus;
+
+    @Autowired
+    private OrderStatusSseServer orderStatusSseServer;
 
     /**
      * 用户下单
@@ -73,7 +83,7 @@ public class OrderController {
         String json = JSON.toJSONString(info);
 
         // 推送到客户端浏览器
-        webSocketServer.sendToAllClient(json);
+        webSocketClusterBus.publish(WebSocketServer.MERCHANT_TOPIC, json);
         return Result.success(orderPaymentVO);
     }
 
@@ -138,4 +148,19 @@ public class OrderController {
         orderService.reminder(id);
         return Result.success();
     }
+
+    /**
+     * 订单状态推送（SSE），接单、派送、完成、取消时推送给当前用户，替代轮询订单详情
+     * @return
+     */
+    @GetMapping(value = "/statusStream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiOperation("订单状态推送")
+    public SseEmitter statusStream(){
+        Long userId = BaseContext.getCurrentId();
+        if (userId == null) {
+            throw new UserNotLoginException(MessageConstant.USER_NOT_LOGIN);
+        }
+        log.info("用户{}订阅订单状态推送", userId);
+        return orderStatusSseServer.subscribe(userId);
+    }
 }
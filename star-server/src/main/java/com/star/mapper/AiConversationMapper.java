@@ -10,12 +10,26 @@ public interface AiConversationMapper {
     // 新增对话记录
     int insert(AiConversation conversation);
 
+    // 批量新增对话记录
+    int insertBatch(@Param("conversations") List<AiConversation> conversations);
+
     // 根据ID查询
     AiConversation selectById(@Param("id") Long id);
 
     // 根据sessionId查询全部对话
     List<AiConversation> selectBySessionId(@Param("sessionId") String sessionId);
 
+    // 查询会话最近limit轮对话，按时间正序返回
+    List<AiConversation> selectRecentBySessionId(@Param("sessionId") String sessionId, @Param("limit") int limit);
+
+    // 查询会话中id大于afterId的最近limit条对话，按时间正序
+    List<AiConversation> selectRecentAfterId(@Param("sessionId") String sessionId, @Param("afterId") Long afterId,
+                                             @Param("limit") int limit);
+
+    // 查询会话中 afterId < id < beforeId 的对话，按时间正序，最多limit条
+    List<AiConversation> selectBySessionIdBetween(@Param("sessionId") String sessionId, @Param("afterId") Long afterId,
+                                                  @Param("beforeId") Long beforeId, @Param("limit") int limit);
+
     // 查询用户所有对话
     List<AiConversation> selectByUserId(@Param("userId") Long userId);
 
@@ -0,0 +1,16 @@
+package com.star.mapper;
+
+import com.star.entity.AiModelStats;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import java.time.LocalDate;
+import java.util.List;
+
+@Mapper
+public interface AiModelStatsMapper {
+    // 批量累加统计增量，按 模型+调用类型+日期 唯一键合并
+    int upsertBatch(@Param("statsList") List<AiModelStats> statsList);
+
+    // 查询某天的统计
+    List<AiModelStats> selectByDate(@Param("callDate") LocalDate callDate);
+}
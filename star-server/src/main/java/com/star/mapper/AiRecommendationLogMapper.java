@@ -10,6 +10,9 @@ public interface AiRecommendationLogMapper {
     // 新增推荐记录
     int insert(AiRecommendationLog log);
 
+    // 批量新增推荐记录
+    int insertBatch(@Param("logs") List<AiRecommendationLog> logs);
+
     // 根据ID查询
     AiRecommendationLog selectById(@Param("id") Long id);
 
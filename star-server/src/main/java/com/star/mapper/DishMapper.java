@@ -10,6 +10,7 @@ import com.star.vo.DishVO;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
 import java.util.List;
@@ -66,6 +67,15 @@ public interface DishMapper {
             "on d.id =s.dish_id where s.setmeal_id = #{setmealId}")
     List<Dish> getBySetmealId(Long setmealId);
 
+    /**
+     * 按id分页查询，用于全量遍历菜品
+     * @param afterId 上一页最后一条的id
+     * @param limit
+     * @return
+     */
+    @Select("select * from star_food_chain.dish where id > #{afterId} order by id limit #{limit}")
+    List<Dish> selectPageAfterId(@Param("afterId") Long afterId, @Param("limit") int limit);
+
     /**
      * 根据条件统计菜品数量
      * @param map
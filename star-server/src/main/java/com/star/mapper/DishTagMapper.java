@@ -16,6 +16,9 @@ public interface DishTagMapper {
     // 根据dishId查询所有标签
     List<DishTag> selectByDishId(@Param("dishId") Long dishId);
 
+    // 批量查询多个菜品的标签
+    List<DishTag> selectByDishIds(@Param("dishIds") List<Long> dishIds);
+
     // 根据标签类型和菜品ID查询
     List<DishTag> selectByDishIdAndType(@Param("dishId") Long dishId, @Param("tagType") String tagType);
 
@@ -3,12 +3,15 @@ package com.star.mapper;
 
 import com.github.pagehelper.Page;
 import com.star.dto.GoodsSalesDTO;
+import com.star.dto.OrderStatusCountDTO;
 import com.star.dto.OrdersPageQueryDTO;
 import com.star.entity.Orders;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -46,11 +49,66 @@ public interface OrderMapper {
 
     void updateStatus(Orders order);
 
+    /**
+     * 支付成功的条件更新，只有支付状态为fromPayStatus的订单才会被修改，回调重试时返回0
+     * @param number
+     * @param status 支付后的订单状态
+     * @param payStatus 支付后的支付状态
+     * @param fromPayStatus 允许修改的当前支付状态
+     * @param checkoutTime
+     * @return 受影响行数
+     */
+    @Update("update star_food_chain.orders set status = #{status}, pay_status = #{payStatus}, checkout_time = #{checkoutTime} " +
+            "where number = #{number} and pay_status = #{fromPayStatus}")
+    int paySuccessByNumber(@Param("number") String number, @Param("status") Integer status,
+                           @Param("payStatus") Integer payStatus, @Param("fromPayStatus") Integer fromPayStatus,
+                           @Param("checkoutTime") LocalDateTime checkoutTime);
+
+    /**
+     * 订单状态的比较并设置（CAS）：只有当前状态在fromStatuses中时才会更新
+     * @param order 目标状态及需要同时写入的取消原因、取消时间、送达时间等
+     * @param payStatus 不为空时，支付状态为fromPayStatus的订单同时改为该支付状态（如已支付改为退款）
+     * @param fromPayStatus 允许修改的当前支付状态
+     * @param fromStatuses 允许的当前状态
+     * @return 受影响行数，0表示订单不存在或状态已被并发修改
+     */
+    int transitStatus(@Param("order") Orders order, @Param("payStatus") Integer payStatus,
+                      @Param("fromPayStatus") Integer fromPayStatus, @Param("fromStatuses") List<Integer> fromStatuses);
+
+    /**
+     * 锁定ids中当前状态在fromStatuses内的订单，返回这些订单的id和下单用户id
+     * @param ids
+     * @param fromStatuses
+     * @return
+     */
+    List<Orders> lockIdsByStatus(@Param("ids") List<Long> ids, @Param("fromStatuses") List<Integer> fromStatuses);
+
+    /**
+     * 批量状态流转，一条语句更新ids中当前状态在fromStatuses内的所有订单
+     * @param order 目标状态（不含id）
+     * @param payStatus 不为空时，支付状态为fromPayStatus的订单同时改为该支付状态
+     * @param fromPayStatus 允许修改的当前支付状态
+     * @param ids
+     * @param fromStatuses
+     * @return 受影响行数
+     */
+    int batchTransitStatus(@Param("order") Orders order, @Param("payStatus") Integer payStatus,
+                           @Param("fromPayStatus") Integer fromPayStatus,
+                           @Param("ids") List<Long> ids, @Param("fromStatuses") List<Integer> fromStatuses);
+
     Page<Orders> pageQuery(OrdersPageQueryDTO ordersPageQueryDTO);
 
     @Select("select * from star_food_chain.orders where id = #{id}")
     Orders getById(Long id);
 
+    /**
+     * 查询订单的下单用户id
+     * @param id
+     * @return
+     */
+    @Select("select user_id from star_food_chain.orders where id = #{id}")
+    Long getUserIdById(Long id);
+
     @Select("select count(id) from star_food_chain.orders where status = #{status}") // 计算当前状态的订单数量(即id个数)
     Integer countStatus(Integer status);
 
@@ -68,5 +126,12 @@ public interface OrderMapper {
 
     Integer countByMap(Map map);
 
+    /**
+     * 按状态分组统计订单数量，begin为空时统计全部订单
+     * @param begin
+     * @return
+     */
+    List<OrderStatusCountDTO> countGroupByStatus(@Param("begin") LocalDateTime begin);
+
     List<GoodsSalesDTO> getSalesTop10(LocalDateTime beginTime, LocalDateTime endTime);
 }
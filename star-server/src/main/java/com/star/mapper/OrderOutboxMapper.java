@@ -0,0 +1,37 @@
+package com.star.mapper;
+
+import com.star.entity.OrderOutbox;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface OrderOutboxMapper {
+
+    @Insert("insert into star_food_chain.order_outbox(order_id, order_number, event_type, payload, status, retry_count, create_time) " +
+            "values (#{orderId}, #{orderNumber}, #{eventType}, #{payload}, #{status}, 0, #{createTime})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    void insert(OrderOutbox orderOutbox);
+
+    /**
+     * 锁定一批待投递事件，SKIP LOCKED保证多节点中继互不阻塞、不重复领取
+     * @param limit
+     * @return
+     */
+    List<OrderOutbox> lockPending(@Param("limit") int limit);
+
+    /**
+     * 批量标记为已投递
+     * @param ids
+     */
+    void markSent(@Param("ids") List<Long> ids);
+
+    /**
+     * 批量累加投递失败次数
+     * @param ids
+     */
+    void incrementRetry(@Param("ids") List<Long> ids);
+}
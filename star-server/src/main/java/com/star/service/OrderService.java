@@ -2,11 +2,14 @@ package com.star.service;
 
 import com.star.dto.*;
 import com.star.result.PageResult;
+import com.star.vo.OrderBatchResultVO;
 import com.star.vo.OrderPaymentVO;
 import com.star.vo.OrderStatisticsVO;
 import com.star.vo.OrderSubmitVO;
 import com.star.vo.OrderVO;
 
+import java.util.List;
+
 public interface OrderService {
 
     OrderSubmitVO submit(OrdersSubmitDTO ordersSubmitDTO);
@@ -44,6 +47,27 @@ public interface OrderService {
 
     void complete(Long id);
 
+    /**
+     * 批量接单
+     * @param ids
+     * @return
+     */
+    OrderBatchResultVO confirmBatch(List<Long> ids);
+
+    /**
+     * 批量派送
+     * @param ids
+     * @return
+     */
+    OrderBatchResultVO deliveryBatch(List<Long> ids);
+
+    /**
+     * 批量完成
+     * @param ids
+     * @return
+     */
+    OrderBatchResultVO completeBatch(List<Long> ids);
+
     Long getOrderIdByNum(String orderNumber);
 
     void reminder(Long id);
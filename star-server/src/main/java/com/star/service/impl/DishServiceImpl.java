@@ -23,6 +23,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -36,6 +37,8 @@ public class DishServiceImpl implements DishService {
     private SetmealDishMapper setmealDishMapper;
     @Autowired
     private CacheClient cacheClient;
+    @Autowired
+    private DishVectorSyncNotifier dishVectorSyncNotifier;
 
     /**
      * 新增菜品，同时增加批量口味
@@ -58,6 +61,8 @@ public class DishServiceImpl implements DishService {
             dishFlavors.forEach(dishFlavor -> dishFlavor.setDishId(dishId));
             dishFlavorMapper.insertBatch(dishFlavors);
         }
+        // 3.同步RAG向量库
+        dishVectorSyncNotifier.dishesChanged(Collections.singletonList(dishId));
     }
 
     /**
@@ -98,8 +103,8 @@ public class DishServiceImpl implements DishService {
         dishMapper.deleteByIds(ids);
         // 3. 删除菜品口味数据
         dishFlavorMapper.deleteByDishIds(ids);
-
-
+        // 4. 从RAG向量库移除
+        dishVectorSyncNotifier.dishesChanged(ids);
     }
 
     /**
@@ -146,6 +151,8 @@ public class DishServiceImpl implements DishService {
             });
         }
         dishFlavorMapper.insertBatch(flavors);
+        // 3.同步RAG向量库，内容未变时不会重新向量化
+        dishVectorSyncNotifier.dishesChanged(idList);
     }
 
     /**
@@ -158,6 +165,8 @@ public class DishServiceImpl implements DishService {
     public void startOrStop(Integer status, Long id) {
         Dish dish = Dish.builder().status(status).id(id).build();
         dishMapper.update(dish);
+        // 起售入库、停售移出RAG向量库
+        dishVectorSyncNotifier.dishesChanged(Collections.singletonList(id));
     }
 
     /**
@@ -0,0 +1,107 @@
+package com.star.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.star.ai.rag.KnowledgeVectorService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 菜品变更同步到RAG向量库：事务提交后异步按菜品id增量同步，不占用接口响应时间
+ * 进程内向量库每个节点各有一份，变更的菜品id通过Redis发布订阅广播，每个节点各自同步
+ */
+@Component
+@Slf4j
+public class DishVectorSyncNotifier implements MessageListener {
+
+    /**
+     * Redis发布订阅频道
+     */
+    public static final String CHANNEL = "ai:rag:dish:changed";
+
+    @Autowired
+    private KnowledgeVectorService knowledgeVectorService;
+    @Autowired
+    private ThreadPoolTaskExecutor backgroundExecutor;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    // 同步互斥执行：每次同步都读取菜品的最新状态，互斥后同一菜品的连续修改不会交错写入向量库
+    private final Object syncLock = new Object();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 菜品新增、修改、起售停售或删除后调用
+     *
+     * @param dishIds
+     */
+    public void dishesChanged(List<Long> dishIds) {
+        List<Long> ids = new ArrayList<>(dishIds);
+        Runnable async = () -> {
+            if (knowledgeVectorService.isLocalStore()) {
+                broadcast(ids);
+            } else {
+                syncAsync(ids);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    async.run();
+                }
+            });
+        } else {
+            async.run();
+        }
+    }
+
+    /**
+     * 收到其他节点（包括自己）广播的变更菜品id，同步本节点的向量库
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        syncAsync(JSON.parseArray(new String(message.getBody(), StandardCharsets.UTF_8), Long.class));
+    }
+
+    private void broadcast(List<Long> ids) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, JSON.toJSONString(ids));
+        } catch (Exception e) {
+            // Redis不可用时至少同步本节点，其他节点等下次全量构建
+            log.error("菜品变更广播失败，仅同步本节点，菜品id：{}", ids, e);
+            syncAsync(ids);
+        }
+    }
+
+    private void syncAsync(List<Long> ids) {
+        backgroundExecutor.execute(() -> {
+            try {
+                synchronized (syncLock) {
+                    knowledgeVectorService.syncDishes(ids);
+                }
+            } catch (Exception e) {
+                log.error("菜品向量同步失败，菜品id：{}", ids, e);
+            }
+        });
+    }
+}
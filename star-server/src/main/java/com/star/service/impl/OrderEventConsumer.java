@@ -0,0 +1,112 @@
+package com.star.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.rabbitmq.client.Channel;
+import com.star.config.RabbitMqConfig;
+import com.star.entity.OrderOutbox;
+import com.star.websocket.WebSocketClusterBus;
+import com.star.websocket.WebSocketServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单事件消费者：每条消息一个事件，按事件id去重后分发给来单提醒等下游
+ * 失败的事件单独延迟重试，超过重试次数进入死信队列，不影响其他事件
+ */
+@Service
+@Slf4j
+public class OrderEventConsumer {
+
+    private static final String ORDER_EVENT_DEDUP_KEY = "order:event:";
+    private static final Long ORDER_EVENT_DEDUP_TTL = 1L;
+    // 单个事件的最大重试次数
+    private static final int MAX_RETRIES = 5;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private WebSocketClusterBus webSocketClusterBus;
+    @Autowired
+    private AmqpTemplate amqpTemplate;
+
+    @RabbitListener(queues = RabbitMqConfig.ORDER_EVENT_QUEUE)
+    public void processEvent(String body, Channel channel, Message message) {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        try {
+            OrderOutbox event = JSON.parseObject(body, OrderOutbox.class);
+            // 中继可能重复投递，同一事件只处理一次
+            String key = ORDER_EVENT_DEDUP_KEY + event.getId();
+            Boolean first = stringRedisTemplate.opsForValue().setIfAbsent(key, "1", ORDER_EVENT_DEDUP_TTL, TimeUnit.DAYS);
+            if (Boolean.TRUE.equals(first)) {
+                try {
+                    handle(event);
+                } catch (RuntimeException e) {
+                    // 释放失败事件的去重标记，重试时可再次处理
+                    stringRedisTemplate.delete(key);
+                    throw e;
+                }
+            }
+            channel.basicAck(deliveryTag, false);
+        } catch (Exception e) {
+            retryOrDeadLetter(body, channel, message, e);
+        }
+    }
+
+    /**
+     * 处理失败：未超过重试次数时拒绝消息，经死信交换机进入重试队列，延迟后回到原队列；
+     * 超过重试次数转入死信队列，不再阻塞后续事件
+     */
+    private void retryOrDeadLetter(String body, Channel channel, Message message, Exception cause) {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        long retries = retryCount(message);
+        try {
+            if (retries < MAX_RETRIES) {
+                log.warn("处理订单事件失败，第{}次重试：{}", retries + 1, body, cause);
+                channel.basicNack(deliveryTag, false, false);
+                return;
+            }
+            log.error("处理订单事件失败，已重试{}次，转入死信队列：{}", retries, body, cause);
+            amqpTemplate.send(RabbitMqConfig.ORDER_EVENT_DLX_EXCHANGE, RabbitMqConfig.ORDER_EVENT_DEAD_ROUTING_KEY, message);
+            channel.basicAck(deliveryTag, false);
+        } catch (Exception e) {
+            log.error("确认消息失败", e);
+        }
+    }
+
+    /**
+     * 消息从订单事件队列被拒绝的次数，由RabbitMQ记录在x-death头中
+     */
+    private static long retryCount(Message message) {
+        List<Map<String, ?>> deaths = message.getMessageProperties().getXDeathHeader();
+        if (deaths == null) {
+            return 0;
+        }
+        for (Map<String, ?> death : deaths) {
+            if (RabbitMqConfig.ORDER_EVENT_QUEUE.equals(death.get("queue")) && death.get("count") instanceof Number) {
+                return ((Number) death.get("count")).longValue();
+            }
+        }
+        return 0;
+    }
+
+    private void handle(OrderOutbox event) {
+        if (OrderOutbox.ORDER_PAID.equals(event.getEventType())) {
+            // 来单提醒
+            Map info = new HashMap<>();
+            info.put("type", 1); // 1来单提醒，2客户催单
+            info.put("orderId", event.getOrderId());
+            info.put("content", "订单号：" + event.getOrderNumber());
+            webSocketClusterBus.publish(WebSocketServer.MERCHANT_TOPIC, JSON.toJSONString(info));
+        }
+    }
+}
@@ -15,10 +15,12 @@ import com.star.mapper.*;
 import com.star.result.PageResult;
 import com.star.service.OrderService;
 import com.star.utils.WeChatPayUtil;
+import com.star.vo.OrderBatchResultVO;
 import com.star.vo.OrderPaymentVO;
 import com.star.vo.OrderStatisticsVO;
 import com.star.vo.OrderSubmitVO;
 import com.star.vo.OrderVO;
+import com.star.websocket.WebSocketClusterBus;
 import com.star.websocket.WebSocketServer;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.weaver.ast.Or;
@@ -51,7 +53,13 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private WeChatPayUtil weChatPayUtil;
     @Autowired
-    private WebSocketServer webSocketServer;
+    private WebSocketClusterBus webSocketClusterBus;
+    @Autowired
+    private OrderOutboxMapper orderOutboxMapper;
+    @Autowired
+    private OrderStatusSnapshot orderStatusSnapshot;
+    @Autowired
+    private OrderStatusNotifier orderStatusNotifier;
     /**
      * 提交订单信息
      * @param ordersSubmitDTO
@@ -100,6 +108,7 @@ public class OrderServiceImpl implements OrderService {
 
         // 4.清空购物车数据
         shoppingCartMapper.deletByUserId(userId);
+        orderStatusSnapshot.invalidate();
         // 5.封装返回结果
         OrderSubmitVO orderSubmitVO = OrderSubmitVO.builder().
                 id(order.getId()).orderNumber(order.getNumber()).orderAmount(order.getAmount()).orderTime(order.getOrderTime()).
@@ -145,6 +154,7 @@ public class OrderServiceImpl implements OrderService {
         log.info("调用updateStatus,更新为支付后数据库状态");
         Orders order = Orders.builder().status(orderStatus).payStatus(orderPaidStatus).checkoutTime(check_out_time).number(orderNum).build();
         orderMapper.updateStatus(order);
+        orderStatusSnapshot.invalidate();
         return vo;
     }
 
@@ -153,18 +163,42 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param outTradeNo
      */
+    @Transactional
     public void paySuccess(String outTradeNo) {
-        // 根据订单号查询订单
+        // 条件更新：只有未支付的订单才会被修改为待接单，重复回调直接返回，无需先查再改
+        int rows = orderMapper.paySuccessByNumber(outTradeNo, Orders.TO_BE_CONFIRMED, Orders.PAID, Orders.UN_PAID,
+                LocalDateTime.now());
+        if (rows == 0) {
+            log.info("订单已处理过支付回调，忽略：{}", outTradeNo);
+            return;
+        }
+        orderStatusSnapshot.invalidate();
         Orders ordersDB = orderMapper.getByNumber(outTradeNo);
-        // 根据订单id更新订单的状态、支付方式、支付状态、结账时间
-        Orders orders = Orders.builder()
-                .id(ordersDB.getId())
-                .status(Orders.TO_BE_CONFIRMED)
-                .payStatus(Orders.PAID)
-                .checkoutTime(LocalDateTime.now())
-                .build();
+        // 同一事务写入支付成功事件，由中继任务投递给来单提醒、统计等下游
+        saveOutboxEvent(ordersDB, OrderOutbox.ORDER_PAID);
+        orderStatusNotifier.notifyUser(ordersDB.getUserId(), ordersDB.getId(), Orders.TO_BE_CONFIRMED);
+    }
 
-        orderMapper.update(orders);
+    /**
+     * 写入订单事件发件箱，必须在订单状态更新的同一事务中调用
+     * @param order
+     * @param eventType
+     */
+    private void saveOutboxEvent(Orders order, String eventType) {
+        Map payload = new HashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("number", order.getNumber());
+        payload.put("userId", order.getUserId());
+        payload.put("amount", order.getAmount());
+        OrderOutbox outbox = OrderOutbox.builder()
+                .orderId(order.getId())
+                .orderNumber(order.getNumber())
+                .eventType(eventType)
+                .payload(JSON.toJSONString(payload))
+                .status(OrderOutbox.PENDING)
+                .createTime(LocalDateTime.now())
+                .build();
+        orderOutboxMapper.insert(outbox);
     }
 
     /**
@@ -220,28 +254,22 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public void cancel(Long id) {
-        // 1.判断订单存在性和订单状态： 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
-        // 除1和2外均不能直接取消
-        Orders order = orderMapper.getById(id);
-        if (order == null) throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
-        Integer status = order.getStatus();
-        if (status > 2){
+        // 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消，除1和2外均不能直接取消
+        // 待接单状态下已支付，取消时同时置为退款
+        Orders order = Orders.builder()
+                .id(id)
+                .status(Orders.CANCELLED)
+                .cancelReason("用户取消")
+                .cancelTime(LocalDateTime.now())
+                .build();
+        int rows = orderMapper.transitStatus(order, Orders.REFUND, Orders.PAID, Arrays.asList(Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED));
+        if (rows == 0) {
+            // 只有失败时才回查，区分订单不存在和状态错误
+            if (orderMapper.getById(id) == null) throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
             throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
         }
-        if (status == 2) {
-            // 待接单状态下要退款，并且修改支付状态
-//            weChatPayUtil.refund(
-//                    order.getNumber(), //商户订单号
-//                    order.getNumber(), //商户退款单号
-//                    new BigDecimal(0.01),//退款金额，单位 元
-//                    new BigDecimal(0.01));//原订单金额
-            order.setPayStatus(Orders.REFUND);
-        }
-        // 2.设置订单状态、取消原因、取消时间，更新数据库
-        order.setStatus(Orders.CANCELLED);
-        order.setCancelReason("用户取消");
-        order.setCancelTime(LocalDateTime.now());
-        orderMapper.update(order);
+        orderStatusSnapshot.invalidate();
+        orderStatusNotifier.notifyUser(BaseContext.getCurrentId(), id, Orders.CANCELLED);
     }
 
     /**
@@ -289,10 +317,11 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public OrderStatisticsVO countStatusNum() {
-       // 计算待派送数量
-        Integer confirmedNum = orderMapper.countStatus(Orders.CONFIRMED);
-        Integer deliveryNum = orderMapper.countStatus(Orders.DELIVERY_IN_PROGRESS);
-        Integer tobeConfirmNum = orderMapper.countStatus(Orders.TO_BE_CONFIRMED);
+        // 一次分组统计得到各状态数量，短时间内的轮询直接命中快照
+        Map<Integer, Integer> counts = orderStatusSnapshot.allTime();
+        Integer confirmedNum = counts.getOrDefault(Orders.CONFIRMED, 0);
+        Integer deliveryNum = counts.getOrDefault(Orders.DELIVERY_IN_PROGRESS, 0);
+        Integer tobeConfirmNum = counts.getOrDefault(Orders.TO_BE_CONFIRMED, 0);
         // 构建VO对象返回
         OrderStatisticsVO orderStatisticsVO = new OrderStatisticsVO();
         // 为对象设置数量
@@ -303,13 +332,14 @@ public class OrderServiceImpl implements OrderService {
     }
 
     /**
-     * 接单，本质上是修改订单状态为confirmed
+     * 接单，本质上是修改订单状态为confirmed，只有待接单的订单才能接
      * @param ordersConfirmDTO
      */
     @Override
+    @Transactional
     public void confirm(OrdersConfirmDTO ordersConfirmDTO) {
         Orders order = Orders.builder().status(Orders.CONFIRMED).id(ordersConfirmDTO.getId()).build();
-        orderMapper.update(order);
+        transit(order, false, Orders.TO_BE_CONFIRMED);
     }
 
     /**
@@ -317,77 +347,56 @@ public class OrderServiceImpl implements OrderService {
      * @param ordersRejectionDTO
      */
     @Override
-
+    @Transactional
     public void rejection(OrdersRejectionDTO ordersRejectionDTO) {
-        // 1.判断当前订单状态，只能是待接单的才能拒
-        Long orderId = ordersRejectionDTO.getId();
-        Orders order = orderMapper.getById(orderId);
-        if (!(order.getStatus() == Orders.TO_BE_CONFIRMED) || order == null){
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-        // 2.拒绝以后要退款
-        Integer payStatus = order.getPayStatus();
-        if (payStatus == Orders.PAID) {
-            //用户已支付，需要退款
-//            String refund = weChatPayUtil.refund(
-//                    ordersDB.getNumber(),
-//                    ordersDB.getNumber(),
-//                    new BigDecimal(0.01),
-//                    new BigDecimal(0.01));
-            log.info("拒单后退款....");
-            order.setPayStatus(Orders.REFUND);
-        }
-        // 3.更新订单状态、取消原因、取消时间，并将对象传入数据库更新
-        order.setCancelReason(ordersRejectionDTO.getRejectionReason());
-        order.setCancelTime(LocalDateTime.now());
-        order.setStatus(Orders.CANCELLED);
-        orderMapper.update(order);
+        // 只有待接单的才能拒，已支付的同时置为退款
+        Orders order = Orders.builder()
+                .id(ordersRejectionDTO.getId())
+                .status(Orders.CANCELLED)
+                .cancelReason(ordersRejectionDTO.getRejectionReason())
+                .cancelTime(LocalDateTime.now())
+                .build();
+        transit(order, true, Orders.TO_BE_CONFIRMED);
     }
 
     /**
      * 商家取消订单,只有在待派送和派送中)的才能取消
      */
     @Override
+    @Transactional
     public void cancelAdmin(OrdersCancelDTO ordersCancelDTO) {
-        // 查询当前订单状态
-        Orders order = orderMapper.getById(ordersCancelDTO.getId());
-        if (order == null || (order.getStatus() != Orders.CONFIRMED && order.getStatus() != Orders.DELIVERY_IN_PROGRESS)){
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-        // 退款
-        if (order.getPayStatus() == Orders.PAID){
-            //用户已支付，需要退款
-//            String refund = weChatPayUtil.refund(
-//                    ordersDB.getNumber(),
-//                    ordersDB.getNumber(),
-//                    new BigDecimal(0.01),
-//                    new BigDecimal(0.01));
-            log.info("订单取消后退款....");
-            order.setPayStatus(Orders.REFUND);
-        }
-        // 设置取消原因，时间，订单状态，并更新数据库
-        order.setCancelReason(ordersCancelDTO.getCancelReason());
-        order.setCancelTime(LocalDateTime.now());
-        order.setStatus(Orders.CANCELLED);
-        orderMapper.update(order);
+        // 已支付的同时置为退款
+        Orders order = Orders.builder()
+                .id(ordersCancelDTO.getId())
+                .status(Orders.CANCELLED)
+                .cancelReason(ordersCancelDTO.getCancelReason())
+                .cancelTime(LocalDateTime.now())
+                .build();
+        transit(order, true, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS);
     }
 
     @Override
+    @Transactional
     public void delivery(Long id) {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
+        // 只有已接单的订单才能派送，状态转为派送中
+        Orders order = Orders.builder().id(id).status(Orders.DELIVERY_IN_PROGRESS).build();
+        transit(order, false, Orders.CONFIRMED);
+    }
 
-        // 校验订单是否存在，并且状态为3
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.CONFIRMED)) {
+    /**
+     * 订单状态流转：一次条件更新完成校验和修改，受影响行数为0说明订单不存在或状态不允许
+     * 需要在事务中调用，更新成功后在同一事务中查询下单用户用于推送
+     * @param order 目标状态
+     * @param refund 是否同时把已支付置为退款
+     * @param fromStatuses 允许的当前状态
+     */
+    private void transit(Orders order, boolean refund, Integer... fromStatuses) {
+        int rows = orderMapper.transitStatus(order, refund ? Orders.REFUND : null, Orders.PAID, Arrays.asList(fromStatuses));
+        if (rows == 0) {
             throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
         }
-
-        Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        // 更新订单状态,状态转为派送中
-        orders.setStatus(Orders.DELIVERY_IN_PROGRESS);
-
-        orderMapper.update(orders);
+        orderStatusSnapshot.invalidate();
+        orderStatusNotifier.notifyUser(orderMapper.getUserIdById(order.getId()), order.getId(), order.getStatus());
     }
 
     /**
@@ -433,22 +442,77 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param id
      */
+    @Transactional
     public void complete(Long id) {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
+        // 只有派送中的订单才能完成，状态转为完成
+        Orders order = Orders.builder()
+                .id(id)
+                .status(Orders.COMPLETED)
+                .deliveryTime(LocalDateTime.now())
+                .build();
+        transit(order, false, Orders.DELIVERY_IN_PROGRESS);
+    }
 
-        // 校验订单是否存在，并且状态为4
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.DELIVERY_IN_PROGRESS)) {
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
+    @Override
+    @Transactional
+    public OrderBatchResultVO confirmBatch(List<Long> ids) {
+        Orders order = Orders.builder().status(Orders.CONFIRMED).build();
+        return batchTransit(ids, order, false, Orders.TO_BE_CONFIRMED);
+    }
+
+    @Override
+    @Transactional
+    public OrderBatchResultVO deliveryBatch(List<Long> ids) {
+        Orders order = Orders.builder().status(Orders.DELIVERY_IN_PROGRESS).build();
+        return batchTransit(ids, order, false, Orders.CONFIRMED);
+    }
 
-        Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        // 更新订单状态,状态转为完成
-        orders.setStatus(Orders.COMPLETED);
-        orders.setDeliveryTime(LocalDateTime.now());
+    @Override
+    @Transactional
+    public OrderBatchResultVO completeBatch(List<Long> ids) {
+        Orders order = Orders.builder().status(Orders.COMPLETED).deliveryTime(LocalDateTime.now()).build();
+        return batchTransit(ids, order, false, Orders.DELIVERY_IN_PROGRESS);
+    }
+
+    // 单次批量处理的订单数上限，限制加锁范围
+    private static final int MAX_BATCH_SIZE = 100;
 
-        orderMapper.update(orders);
+    /**
+     * 批量状态流转：一次加锁查询找出可流转的订单，一条语句完成更新，不论订单数量都只有两次数据库往返
+     * 需要在事务中调用，保证加锁到更新之间状态不被修改
+     * @param ids
+     * @param order 目标状态
+     * @param refund 是否同时把已支付置为退款
+     * @param fromStatuses 允许的当前状态
+     * @return 每个订单的处理结果
+     */
+    private OrderBatchResultVO batchTransit(List<Long> ids, Orders order, boolean refund, Integer... fromStatuses) {
+        if (CollectionUtils.isEmpty(ids)) {
+            return new OrderBatchResultVO(new ArrayList<>(), new ArrayList<>());
+        }
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new OrderBusinessException(MessageConstant.ORDER_BATCH_TOO_LARGE);
+        }
+        List<Integer> from = Arrays.asList(fromStatuses);
+        List<Orders> locked = orderMapper.lockIdsByStatus(ids, from);
+        List<Long> succeeded = new ArrayList<>(locked.size());
+        for (Orders lockedOrder : locked) {
+            succeeded.add(lockedOrder.getId());
+        }
+        if (!succeeded.isEmpty()) {
+            orderMapper.batchTransitStatus(order, refund ? Orders.REFUND : null, Orders.PAID, succeeded, from);
+            orderStatusSnapshot.invalidate();
+            // 加锁查询时已带回下单用户，推送无需再查
+            orderStatusNotifier.notifyOrders(locked, order.getStatus());
+        }
+        Set<Long> succeededSet = new HashSet<>(succeeded);
+        List<Long> failed = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            if (!succeededSet.contains(id)) {
+                failed.add(id);
+            }
+        }
+        return new OrderBatchResultVO(succeeded, failed);
     }
 
     @Override
@@ -469,7 +533,7 @@ public class OrderServiceImpl implements OrderService {
         info.put("orderId",id);
         info.put("content","订单号："+orders.getNumber());
         String json = JSON.toJSONString(info);
-        webSocketServer.sendToAllClient(json);
+        webSocketClusterBus.publish(WebSocketServer.MERCHANT_TOPIC, json);
     }
 
 
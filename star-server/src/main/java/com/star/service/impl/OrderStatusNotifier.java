@@ -0,0 +1,85 @@
+package com.star.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.star.entity.Orders;
+import com.star.websocket.OrderStatusSseServer;
+import com.star.websocket.WebSocketClusterBus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单状态变化通知：事务提交后异步推送给下单用户（经集群总线到用户所在节点的SSE连接）
+ */
+@Component
+@Slf4j
+public class OrderStatusNotifier {
+
+    @Autowired
+    private WebSocketClusterBus webSocketClusterBus;
+    // 推送放到后台线程，不占用接口响应时间
+    @Autowired
+    private ThreadPoolTaskExecutor backgroundExecutor;
+
+    /**
+     * 已知下单用户时直接推送
+     *
+     * @param userId
+     * @param orderId
+     * @param status
+     */
+    public void notifyUser(Long userId, Long orderId, Integer status) {
+        afterCommit(() -> publish(userId, orderId, status));
+    }
+
+    /**
+     * 批量推送，orders中只需要id和下单用户id
+     *
+     * @param orders
+     * @param status
+     */
+    public void notifyOrders(List<Orders> orders, Integer status) {
+        afterCommit(() -> {
+            for (Orders order : orders) {
+                publish(order.getUserId(), order.getId(), status);
+            }
+        });
+    }
+
+    private void publish(Long userId, Long orderId, Integer status) {
+        if (userId == null) {
+            return;
+        }
+        Map info = new HashMap<>();
+        info.put("orderId", orderId);
+        info.put("status", status);
+        webSocketClusterBus.publish(OrderStatusSseServer.USER_TOPIC_PREFIX + userId, JSON.toJSONString(info));
+    }
+
+    private void afterCommit(Runnable task) {
+        Runnable async = () -> backgroundExecutor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("订单状态推送失败", e);
+            }
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    async.run();
+                }
+            });
+        } else {
+            async.run();
+        }
+    }
+}
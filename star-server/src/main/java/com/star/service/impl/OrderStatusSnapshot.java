@@ -0,0 +1,130 @@
+package com.star.service.impl;
+
+import com.star.dto.OrderStatusCountDTO;
+import com.star.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单状态数量的内存快照，供商家端轮询的统计接口使用
+ * 一次GROUP BY查询得到各状态数量，短时间内重复轮询直接命中快照；订单状态变化时失效
+ */
+@Component
+@Slf4j
+public class OrderStatusSnapshot {
+
+    // 快照有效期（毫秒），多节点部署时其他节点的变化最多延迟这么久可见
+    private static final long TTL_MILLIS = 5000L;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    // 全部订单的状态分布
+    private volatile Snapshot allTime;
+    // 当天订单的状态分布
+    private volatile Snapshot today;
+    // 每次失效加一，加载期间发生过失效的结果不再写回快照
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * 全部订单按状态的数量
+     * @return 状态 -> 数量
+     */
+    public Map<Integer, Integer> allTime() {
+        Snapshot snapshot = allTime;
+        if (snapshot == null || snapshot.isExpired(null)) {
+            synchronized (this) {
+                snapshot = allTime;
+                if (snapshot == null || snapshot.isExpired(null)) {
+                    long v = version.get();
+                    snapshot = load(null);
+                    if (version.get() == v) {
+                        allTime = snapshot;
+                    }
+                }
+            }
+        }
+        return snapshot.counts;
+    }
+
+    /**
+     * 当天订单按状态的数量
+     * @return 状态 -> 数量
+     */
+    public Map<Integer, Integer> today() {
+        LocalDateTime begin = LocalDateTime.now().with(LocalTime.MIN);
+        Snapshot snapshot = today;
+        if (snapshot == null || snapshot.isExpired(begin)) {
+            synchronized (this) {
+                snapshot = today;
+                if (snapshot == null || snapshot.isExpired(begin)) {
+                    long v = version.get();
+                    snapshot = load(begin);
+                    if (version.get() == v) {
+                        today = snapshot;
+                    }
+                }
+            }
+        }
+        return snapshot.counts;
+    }
+
+    /**
+     * 订单状态发生变化时调用；处于事务中时在提交后再失效，避免读到未提交前的旧数据又被缓存
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear();
+                }
+            });
+        } else {
+            clear();
+        }
+    }
+
+    private void clear() {
+        version.incrementAndGet();
+        allTime = null;
+        today = null;
+    }
+
+    private Snapshot load(LocalDateTime begin) {
+        List<OrderStatusCountDTO> rows = orderMapper.countGroupByStatus(begin);
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (OrderStatusCountDTO row : rows) {
+            counts.put(row.getStatus(), row.getCount());
+        }
+        return new Snapshot(begin, Collections.unmodifiableMap(counts), System.currentTimeMillis() + TTL_MILLIS);
+    }
+
+    private static class Snapshot {
+        private final LocalDateTime begin;
+        private final Map<Integer, Integer> counts;
+        private final long expireAt;
+
+        private Snapshot(LocalDateTime begin, Map<Integer, Integer> counts, long expireAt) {
+            this.begin = begin;
+            this.counts = counts;
+            this.expireAt = expireAt;
+        }
+
+        // 超过有效期，或统计窗口已跨天
+        private boolean isExpired(LocalDateTime begin) {
+            return System.currentTimeMillis() > expireAt || (begin != null && !begin.equals(this.begin));
+        }
+    }
+}
@@ -17,7 +17,6 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -33,6 +32,8 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private OrderStatusSnapshot orderStatusSnapshot;
 
     /**
      * 根据时间段统计营业数据
@@ -93,28 +94,26 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @return
      */
     public OrderOverViewVO getOrderOverView() {
-        Map map = new HashMap();
-        map.put("begin", LocalDateTime.now().with(LocalTime.MIN));
-        map.put("status", Orders.TO_BE_CONFIRMED);
+        // 当天订单按状态分组统计一次，各数量从快照中取
+        Map<Integer, Integer> counts = orderStatusSnapshot.today();
 
         //待接单
-        Integer waitingOrders = orderMapper.countByMap(map);
+        Integer waitingOrders = counts.getOrDefault(Orders.TO_BE_CONFIRMED, 0);
 
         //待派送
-        map.put("status", Orders.CONFIRMED);
-        Integer deliveredOrders = orderMapper.countByMap(map);
+        Integer deliveredOrders = counts.getOrDefault(Orders.CONFIRMED, 0);
 
         //已完成
-        map.put("status", Orders.COMPLETED);
-        Integer completedOrders = orderMapper.countByMap(map);
+        Integer completedOrders = counts.getOrDefault(Orders.COMPLETED, 0);
 
         //已取消
-        map.put("status", Orders.CANCELLED);
-        Integer cancelledOrders = orderMapper.countByMap(map);
+        Integer cancelledOrders = counts.getOrDefault(Orders.CANCELLED, 0);
 
         //全部订单
-        map.put("status", null);
-        Integer allOrders = orderMapper.countByMap(map);
+        Integer allOrders = 0;
+        for (Integer count : counts.values()) {
+            allOrders += count;
+        }
 
         return OrderOverViewVO.builder()
                 .waitingOrders(waitingOrders)
@@ -0,0 +1,63 @@
+package com.star.task;
+
+import com.alibaba.fastjson.JSON;
+import com.star.config.RabbitMqConfig;
+import com.star.entity.OrderOutbox;
+import com.star.mapper.OrderOutboxMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 订单事件发件箱中继：把与订单同事务写入的事件投递到RabbitMQ，每个事件一条消息，消费失败时只重试该事件
+ * 投递成功才标记已发送，失败则留待下次重试（至少一次），下游按事件id去重，整体效果为恰好一次
+ */
+@Component
+@Slf4j
+public class OrderOutboxRelayTask {
+
+    // 单次扫描的最大事件数
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private OrderOutboxMapper orderOutboxMapper;
+    @Autowired
+    private AmqpTemplate amqpTemplate;
+
+    /**
+     * 每秒扫描一次待投递事件
+     */
+    @Scheduled(fixedDelay = 1000)
+    @Transactional
+    public void relay() {
+        List<OrderOutbox> events = orderOutboxMapper.lockPending(BATCH_SIZE);
+        if (CollectionUtils.isEmpty(events)) {
+            return;
+        }
+        List<Long> sentIds = new ArrayList<>(events.size());
+        for (OrderOutbox event : events) {
+            try {
+                amqpTemplate.convertAndSend(RabbitMqConfig.ORDER_EVENT_EXCHANGE, RabbitMqConfig.ORDER_EVENT_ROUTING_KEY,
+                        JSON.toJSONString(event));
+                sentIds.add(event.getId());
+            } catch (Exception e) {
+                // MQ不可用时后面的事件大概率也会失败，本轮到此为止，其余事件留待下次
+                log.error("订单事件投递失败，等待下次重试，事件id：{}", event.getId(), e);
+                orderOutboxMapper.incrementRetry(Collections.singletonList(event.getId()));
+                break;
+            }
+        }
+        if (!sentIds.isEmpty()) {
+            orderOutboxMapper.markSent(sentIds);
+            log.info("订单事件投递完成，数量：{}", sentIds.size());
+        }
+    }
+}
@@ -3,12 +3,15 @@ package com.star.task;
 
 import com.star.entity.Orders;
 import com.star.mapper.OrderMapper;
+import com.star.service.impl.OrderStatusNotifier;
+import com.star.service.impl.OrderStatusSnapshot;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 
 @Component
@@ -17,6 +20,10 @@ public class OrderTask {
 
     @Autowired
     private OrderMapper orderMapper;
+    @Autowired
+    private OrderStatusSnapshot orderStatusSnapshot;
+    @Autowired
+    private OrderStatusNotifier orderStatusNotifier;
 
     /**
      * 处理超时未付款订单，每3分钟触发一次
@@ -30,11 +37,18 @@ public class OrderTask {
         // 处理超时订单
         if (ordersList != null && ordersList.size() > 0){
             for (Orders orders : ordersList) {
-                orders.setStatus(Orders.CANCELLED);
-                orders.setCancelReason("订单超时，自动取消");
-                orders.setCancelTime(LocalDateTime.now());
-                orderMapper.update(orders);
+                // 条件更新，避免覆盖查询之后刚刚支付成功的订单
+                Orders target = Orders.builder()
+                        .id(orders.getId())
+                        .status(Orders.CANCELLED)
+                        .cancelReason("订单超时，自动取消")
+                        .cancelTime(LocalDateTime.now())
+                        .build();
+                if (orderMapper.transitStatus(target, null, null, Collections.singletonList(Orders.PENDING_PAYMENT)) > 0) {
+                    orderStatusNotifier.notifyUser(orders.getUserId(), orders.getId(), Orders.CANCELLED);
+                }
             }
+            orderStatusSnapshot.invalidate();
         }
     }
     /**
@@ -48,9 +62,12 @@ public class OrderTask {
         List<Orders> ordersList = orderMapper.getByStatusAndOrderTime(Orders.DELIVERY_IN_PROGRESS, minTime);
         if (ordersList != null && ordersList.size() > 0){
             for (Orders orders : ordersList){
-                orders.setStatus(Orders.COMPLETED);
-                orderMapper.update(orders);
+                Orders target = Orders.builder().id(orders.getId()).status(Orders.COMPLETED).build();
+                if (orderMapper.transitStatus(target, null, null, Collections.singletonList(Orders.DELIVERY_IN_PROGRESS)) > 0) {
+                    orderStatusNotifier.notifyUser(orders.getUserId(), orders.getId(), Orders.COMPLETED);
+                }
             }
+            orderStatusSnapshot.invalidate();
 
 
         }
@@ -0,0 +1,95 @@
+package com.star.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * C端订单状态推送（Server-Sent Events）
+ * 按用户登记连接，订单状态变化时推送给该用户的所有连接，用户端不再需要轮询订单详情
+ */
+@Component
+@Slf4j
+public class OrderStatusSseServer {
+
+    /**
+     * 用户主题前缀，集群总线上 user:{userId} 的消息投递给该用户
+     */
+    public static final String USER_TOPIC_PREFIX = "user:";
+
+    // 连接超时时间，超时后客户端（EventSource）会自动重连
+    private static final long TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
+    //用户id -> 该用户的连接
+    private static final Map<Long, Set<SseEmitter>> emitterMap = new ConcurrentHashMap<>();
+
+    /**
+     * 建立连接
+     *
+     * @param userId
+     * @return
+     */
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(TIMEOUT_MILLIS);
+        emitterMap.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(emitter);
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(() -> remove(userId, emitter));
+        emitter.onError(e -> remove(userId, emitter));
+        return emitter;
+    }
+
+    /**
+     * 按主题投递，只处理 user:{userId} 主题
+     *
+     * @param topic
+     * @param message
+     */
+    public void sendToTopic(String topic, String message) {
+        if (!topic.startsWith(USER_TOPIC_PREFIX)) {
+            return;
+        }
+        Long userId;
+        try {
+            userId = Long.valueOf(topic.substring(USER_TOPIC_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        sendToUser(userId, message);
+    }
+
+    /**
+     * 推送给指定用户在本节点的所有连接
+     *
+     * @param userId
+     * @param message
+     */
+    public void sendToUser(Long userId, String message) {
+        Set<SseEmitter> emitters = emitterMap.get(userId);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("orderStatus").data(message));
+            } catch (Exception e) {
+                log.debug("订单状态推送失败，移除连接，用户：{}", userId);
+                remove(userId, emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private static void remove(Long userId, SseEmitter emitter) {
+        Set<SseEmitter> emitters = emitterMap.get(userId);
+        if (emitters != null) {
+            emitters.remove(emitter);
+            if (emitters.isEmpty()) {
+                emitterMap.remove(userId, emitters);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.star.websocket;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * WebSocket集群消息总线
+ * 消息通过Redis发布订阅广播到所有节点，每个节点只投递给自己持有的会话，负载均衡后的商家也能收到提醒
+ * 同一总线也承载C端SSE的 user:{userId} 主题
+ * 短时间窗口内的消息按主题合并成一次发布，窗口内重复的消息只发一次
+ */
+@Component
+@Slf4j
+public class WebSocketClusterBus implements MessageListener {
+
+    /**
+     * Redis发布订阅频道
+     */
+    public static final String CHANNEL = "ws:broadcast";
+
+    // 合并窗口（毫秒）
+    private static final long COALESCE_WINDOW_MILLIS = 100L;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private WebSocketServer webSocketServer;
+    @Autowired
+    private OrderStatusSseServer orderStatusSseServer;
+
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ws-cluster-bus");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final Object lock = new Object();
+    // 主题 -> 窗口内待发布的消息（去重且保持顺序）
+    private Map<String, Set<String>> pending = new HashMap<>();
+
+    /**
+     * 向所有节点上订阅了该主题的客户端发送消息
+     *
+     * @param topic
+     * @param message
+     */
+    public void publish(String topic, String message) {
+        synchronized (lock) {
+            pending.computeIfAbsent(topic, k -> new LinkedHashSet<>()).add(message);
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            flushExecutor.schedule(this::flush, COALESCE_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        Map<String, Set<String>> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new HashMap<>();
+        }
+        for (Map.Entry<String, Set<String>> entry : batch.entrySet()) {
+            JSONObject envelope = new JSONObject();
+            envelope.put("topic", entry.getKey());
+            envelope.put("messages", new ArrayList<>(entry.getValue()));
+            try {
+                stringRedisTemplate.convertAndSend(CHANNEL, envelope.toJSONString());
+            } catch (Exception e) {
+                // Redis不可用时至少保证本节点的会话能收到
+                log.error("WebSocket消息发布失败，仅投递本节点，主题：{}", entry.getKey(), e);
+                deliverLocally(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 收到其他节点（包括自己）发布的消息，投递给本节点的会话
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        JSONObject envelope = JSON.parseObject(new String(message.getBody(), StandardCharsets.UTF_8));
+        List<String> messages = envelope.getJSONArray("messages").toJavaList(String.class);
+        deliverLocally(envelope.getString("topic"), messages);
+    }
+
+    private void deliverLocally(String topic, Iterable<String> messages) {
+        // 用户主题只投递给经过登录校验的SSE连接，/ws 端点未鉴权，不能收到用户的订单信息
+        boolean userTopic = topic.startsWith(OrderStatusSseServer.USER_TOPIC_PREFIX);
+        for (String message : messages) {
+            if (userTopic) {
+                orderStatusSseServer.sendToTopic(topic, message);
+            } else {
+                webSocketServer.sendToTopic(topic, message);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+    }
+}
@@ -1,33 +1,64 @@
 package com.star.websocket;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import javax.websocket.CloseReason;
 import javax.websocket.OnClose;
+import javax.websocket.OnError;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
 import javax.websocket.Session;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * WebSocket服务
+ * 每个会话有独立的有界发送队列，通过异步发送逐条投递，慢客户端不会阻塞其他会话；队列写满的会话被断开
+ * 客户端连接时可通过 ?topics=a,b 订阅主题，不传时默认订阅商家主题；user: 开头的用户主题只能通过鉴权的SSE订阅，这里忽略
  */
 @Component
 @ServerEndpoint("/ws/{sid}")
+@Slf4j
 public class WebSocketServer {
 
-    //存放会话对象
-    private static Map<String, Session> sessionMap = new HashMap();
+    /**
+     * 商家端主题，来单提醒、催单等消息发往该主题
+     */
+    public static final String MERCHANT_TOPIC = "merchant";
+
+    // 每个会话最多积压的消息数，超过视为慢客户端
+    private static final int MAX_PENDING_MESSAGES = 256;
+
+    //存放会话对象 sid -> 会话
+    private static final Map<String, ClientChannel> channelMap = new ConcurrentHashMap<>();
+    //主题 -> 订阅该主题的sid
+    private static final Map<String, Set<String>> topicMap = new ConcurrentHashMap<>();
 
     /**
      * 连接建立成功调用的方法
      */
     @OnOpen
     public void onOpen(Session session, @PathParam("sid") String sid) {
-        System.out.println("客户端：" + sid + "建立连接");
-        sessionMap.put(sid, session);
+        log.info("客户端：{}建立连接", sid);
+        Set<String> topics = parseTopics(session);
+        ClientChannel old = channelMap.put(sid, new ClientChannel(sid, session, topics));
+        if (old != null) {
+            // 同一个sid重连，旧连接直接关闭
+            unsubscribe(old);
+            closeQuietly(old.session, "replaced");
+        }
+        for (String topic : topics) {
+            topicMap.computeIfAbsent(topic, k -> ConcurrentHashMap.newKeySet()).add(sid);
+        }
     }
 
     /**
@@ -37,7 +68,7 @@ public class WebSocketServer {
      */
     @OnMessage
     public void onMessage(String message, @PathParam("sid") String sid) {
-        System.out.println("收到来自客户端：" + sid + "的信息:" + message);
+        log.info("收到来自客户端：{}的信息:{}", sid, message);
     }
 
     /**
@@ -46,9 +77,15 @@ public class WebSocketServer {
      * @param sid
      */
     @OnClose
-    public void onClose(@PathParam("sid") String sid) {
-        System.out.println("连接断开:" + sid);
-        sessionMap.remove(sid);
+    public void onClose(Session session, @PathParam("sid") String sid) {
+        log.info("连接断开:{}", sid);
+        remove(sid, session);
+    }
+
+    @OnError
+    public void onError(Session session, @PathParam("sid") String sid, Throwable error) {
+        log.warn("连接异常:{}，{}", sid, error.getMessage());
+        remove(sid, session);
     }
 
     /**
@@ -57,13 +94,155 @@ public class WebSocketServer {
      * @param message
      */
     public void sendToAllClient(String message) {
-        Collection<Session> sessions = sessionMap.values();
-        for (Session session : sessions) {
-            try {
-                //服务器向客户端发送消息
-                session.getBasicRemote().sendText(message);
-            } catch (Exception e) {
-                e.printStackTrace();
+        for (ClientChannel channel : channelMap.values()) {
+            channel.enqueue(message);
+        }
+    }
+
+    /**
+     * 发送给订阅了指定主题的客户端
+     *
+     * @param topic
+     * @param message
+     */
+    public void sendToTopic(String topic, String message) {
+        Set<String> sids = topicMap.get(topic);
+        if (sids == null) {
+            return;
+        }
+        for (String sid : sids) {
+            sendToClient(sid, message);
+        }
+    }
+
+    /**
+     * 发送给指定客户端
+     *
+     * @param sid
+     * @param message
+     */
+    public void sendToClient(String sid, String message) {
+        ClientChannel channel = channelMap.get(sid);
+        if (channel != null) {
+            channel.enqueue(message);
+        }
+    }
+
+    /**
+     * 当前连接数
+     * @return
+     */
+    public int getSessionCount() {
+        return channelMap.size();
+    }
+
+    private static Set<String> parseTopics(Session session) {
+        List<String> params = session.getRequestParameterMap().get("topics");
+        if (params == null || params.isEmpty()) {
+            return Collections.singleton(MERCHANT_TOPIC);
+        }
+        Set<String> topics = new HashSet<>();
+        for (String param : params) {
+            for (String topic : param.split(",")) {
+                topic = topic.trim();
+                if (topic.startsWith(OrderStatusSseServer.USER_TOPIC_PREFIX)) {
+                    log.warn("WebSocket不允许订阅用户主题，已忽略：{}", topic);
+                    continue;
+                }
+                if (!topic.isEmpty()) {
+                    topics.add(topic);
+                }
+            }
+        }
+        return topics.isEmpty() ? Collections.singleton(MERCHANT_TOPIC) : topics;
+    }
+
+    private static void remove(String sid, Session session) {
+        ClientChannel channel = channelMap.get(sid);
+        // 只移除属于当前会话的登记，避免误删同sid的新连接
+        if (channel != null && channel.session == session && channelMap.remove(sid, channel)) {
+            unsubscribe(channel);
+        }
+    }
+
+    private static void unsubscribe(ClientChannel channel) {
+        for (String topic : channel.topics) {
+            Set<String> sids = topicMap.get(topic);
+            if (sids != null) {
+                sids.remove(channel.sid);
+            }
+        }
+    }
+
+    private static void evict(ClientChannel channel, String reason) {
+        log.warn("断开慢客户端:{}，原因：{}", channel.sid, reason);
+        remove(channel.sid, channel.session);
+        closeQuietly(channel.session, reason);
+    }
+
+    private static void closeQuietly(Session session, String reason) {
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, reason));
+        } catch (Exception e) {
+            log.debug("关闭连接失败", e);
+        }
+    }
+
+    /**
+     * 单个会话的发送通道：有界队列 + 同一时刻最多一条在途的异步发送
+     */
+    private static class ClientChannel {
+        private final String sid;
+        private final Session session;
+        private final Set<String> topics;
+        private final Queue<String> queue = new ArrayBlockingQueue<>(MAX_PENDING_MESSAGES);
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+
+        private ClientChannel(String sid, Session session, Set<String> topics) {
+            this.sid = sid;
+            this.session = session;
+            this.topics = topics;
+        }
+
+        private void enqueue(String message) {
+            if (!session.isOpen()) {
+                remove(sid, session);
+                return;
+            }
+            if (!queue.offer(message)) {
+                evict(this, "too many pending messages");
+                return;
+            }
+            drain();
+        }
+
+        private void drain() {
+            // 抢到发送权的线程负责发出下一条，回调中继续发送，直到队列为空
+            while (sending.compareAndSet(false, true)) {
+                String next = queue.poll();
+                if (next == null) {
+                    sending.set(false);
+                    // 释放发送权后若又有新消息入队，重新抢发送权
+                    if (queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    //服务器向客户端异步发送消息
+                    session.getAsyncRemote().sendText(next, result -> {
+                        sending.set(false);
+                        if (result.isOK()) {
+                            drain();
+                        } else {
+                            evict(this, "send failed");
+                        }
+                    });
+                } catch (Exception e) {
+                    sending.set(false);
+                    evict(this, "send failed");
+                }
+                return;
             }
         }
     }
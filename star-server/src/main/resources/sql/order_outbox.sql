@@ -0,0 +1,21 @@
+-- ===============================================
+-- 订单事件发件箱（Transactional Outbox）
+-- 说明: 订单状态变更与事件写入同一事务，由OrderOutboxRelayTask批量投递到RabbitMQ，
+--       下游消费者按事件id去重，实现无两阶段提交的"恰好一次"效果
+-- ===============================================
+
+DROP TABLE IF EXISTS `order_outbox`;
+CREATE TABLE `order_outbox` (
+    `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '事件ID（下游去重键）',
+    `order_id` BIGINT NOT NULL COMMENT '订单ID',
+    `order_number` VARCHAR(50) NULL COMMENT '订单号',
+    `event_type` VARCHAR(30) NOT NULL COMMENT '事件类型（ORDER_PAID等）',
+    `payload` JSON NULL COMMENT '事件内容',
+    `status` TINYINT DEFAULT 0 COMMENT '投递状态（0:待投递、1:已投递）',
+    `retry_count` INT DEFAULT 0 COMMENT '投递失败次数',
+    `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `sent_time` DATETIME NULL COMMENT '投递时间',
+
+    INDEX `idx_status_id` (`status`, `id`),
+    INDEX `idx_order_id` (`order_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单事件发件箱';
@@ -0,0 +1,128 @@
+package com.star.ai.agent;
+
+import com.star.ai.agent.base.AIAgent;
+import com.star.ai.agent.base.AgentCapability;
+import com.star.ai.agent.base.AgentContext;
+import com.star.ai.agent.base.AgentRequest;
+import com.star.ai.agent.base.AgentResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Agent依赖图调度：互不依赖的Agent并行执行，依赖方等上游都成功后再执行
+ */
+class AgentCoordinatorTest {
+
+    private final AgentCoordinator coordinator = new AgentCoordinator();
+
+    @AfterEach
+    void tearDown() {
+        coordinator.destroy();
+    }
+
+    @Test
+    void independentAgentsRunConcurrently() {
+        // 两个Agent都要等对方也开始执行才能完成，串行执行时会等待超时
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        Supplier<AgentResponse> waitForPeer = () -> {
+            bothStarted.countDown();
+            try {
+                return bothStarted.await(5, TimeUnit.SECONDS) ? AgentResponse.success("ok") : AgentResponse.error("未并行执行");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return AgentResponse.error("interrupted");
+            }
+        };
+        init(agent("NutritionAgent", 3, Collections.emptyList(), Collections.singletonList("nutrition"), () -> {
+                    AgentResponse response = waitForPeer.get();
+                    finished.add("NutritionAgent");
+                    return response;
+                }),
+                agent("PriceAgent", 2, Collections.emptyList(), Collections.singletonList("price"), () -> {
+                    AgentResponse response = waitForPeer.get();
+                    finished.add("PriceAgent");
+                    return response;
+                }),
+                agent("SummaryAgent", 1, Arrays.asList("nutrition", "price"), Collections.singletonList("summary"), () -> {
+                    // 依赖的两个Agent都完成后才会执行
+                    return finished.size() == 2 ? AgentResponse.success("done", "summary") : AgentResponse.error("上游未完成");
+                }));
+
+        AgentResponse response = coordinator.coordinate(AgentRequest.builder().requestId("r1").build(), AgentContext.builder().build());
+
+        assertTrue(response.isSuccess(), response.getMessage());
+        assertEquals("summary", response.getData());
+    }
+
+    @Test
+    void dependentAgentIsSkippedWhenUpstreamFails() {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        init(agent("UnderstandingAgent", 2, Collections.emptyList(), Collections.singletonList("userRequirement"), () -> {
+                    executed.add("UnderstandingAgent");
+                    return AgentResponse.needMoreInfo("请问几位用餐", "peopleCount");
+                }),
+                agent("RecommendationAgent", 1, Collections.singletonList("userRequirement"), Collections.singletonList("recommendationResult"), () -> {
+                    executed.add("RecommendationAgent");
+                    return AgentResponse.success("ok", "result");
+                }));
+
+        AgentResponse response = coordinator.coordinate(AgentRequest.builder().requestId("r2").build(), AgentContext.builder().build());
+
+        assertTrue(response.isError());
+        assertEquals(Collections.singletonList("UnderstandingAgent"), executed);
+    }
+
+    private void init(AIAgent... agents) {
+        Map<String, AIAgent> beans = new LinkedHashMap<>();
+        for (AIAgent agent : agents) {
+            beans.put(agent.getCapability().getName(), agent);
+        }
+        ApplicationContext applicationContext = mock(ApplicationContext.class);
+        when(applicationContext.getBeansOfType(AIAgent.class)).thenReturn(beans);
+        ReflectionTestUtils.setField(coordinator, "applicationContext", applicationContext);
+        ReflectionTestUtils.setField(coordinator, "environment", mock(Environment.class));
+        ReflectionTestUtils.setField(coordinator, "executorCoreSize", 4);
+        ReflectionTestUtils.setField(coordinator, "executorMaxSize", 4);
+        ReflectionTestUtils.setField(coordinator, "executorQueueCapacity", 10);
+        coordinator.init();
+    }
+
+    private static AIAgent agent(String name, int priority, List<String> inputs, List<String> outputs, Supplier<AgentResponse> process) {
+        AgentCapability capability = AgentCapability.builder().name(name).inputs(inputs).outputs(outputs).build();
+        return new AIAgent() {
+            @Override
+            public AgentResponse process(AgentRequest request, AgentContext context) {
+                return process.get();
+            }
+
+            @Override
+            public AgentCapability getCapability() {
+                return capability;
+            }
+
+            @Override
+            public int getPriority() {
+                return priority;
+            }
+        };
+    }
+}
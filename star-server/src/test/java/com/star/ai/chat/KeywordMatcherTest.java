@@ -0,0 +1,50 @@
+package com.star.ai.chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeywordMatcherTest {
+
+    @Test
+    void findsOverlappingKeywords() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("满意", "不满意", "满"));
+
+        assertEquals(new HashSet<>(Arrays.asList("满意", "不满意", "满")), matcher.findAll("我很不满意"));
+    }
+
+    @Test
+    void followsFailureLinksAcrossKeywords() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("he", "she", "his", "hers"));
+
+        assertEquals(new HashSet<>(Arrays.asList("she", "he", "hers")), matcher.findAll("ushers"));
+    }
+
+    @Test
+    void findsKeywordsAnywhereInText() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("川菜", "辣", "不吃辣"));
+
+        assertEquals(new HashSet<>(Arrays.asList("川菜", "辣", "不吃辣")), matcher.findAll("想吃川菜但是不吃辣"));
+    }
+
+    @Test
+    void returnsEmptyWhenNothingMatches() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("粤菜", "清淡"));
+
+        assertTrue(matcher.findAll("来份麻辣烫").isEmpty());
+        assertTrue(matcher.findAll("").isEmpty());
+    }
+
+    @Test
+    void ignoresEmptyKeywords() {
+        KeywordMatcher matcher = new KeywordMatcher(Arrays.asList("", null, "好"));
+
+        assertEquals(Collections.singleton("好"), matcher.findAll("好的"));
+        assertTrue(new KeywordMatcher(Collections.emptyList()).findAll("任何文本").isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package com.star.ai.chat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MessageProcessor单条消息处理耗时基准
+ * 运行：在IDE中执行main，或 mvn test-compile 后以测试类路径运行本类
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageProcessorBenchmark {
+
+    @Param({
+            "你好",
+            "我们两个人想吃川菜，人均一百块左右，不吃辣 😊",
+            "  推荐几道适合 十五 个人聚餐的菜，预算二十五元一位，要清淡一点，有家人和孩子，最好有汤有素菜 👍  "
+    })
+    private String message;
+
+    private final MessageProcessor processor = new MessageProcessor();
+
+    @Benchmark
+    public String preprocess() {
+        return processor.preprocessMessage(message);
+    }
+
+    @Benchmark
+    public MessageProcessor.MessageType analyzeMessageType() {
+        return processor.analyzeMessageType(message);
+    }
+
+    /**
+     * 一次对话中消息经过的完整规则处理
+     */
+    @Benchmark
+    public void fullPipeline(Blackhole blackhole) {
+        String processed = processor.preprocessMessage(message);
+        blackhole.consume(processor.analyzeMessageType(processed));
+        blackhole.consume(processor.analyzeSentiment(processed));
+        blackhole.consume(processor.extractKeyInformation(processed));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MessageProcessorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
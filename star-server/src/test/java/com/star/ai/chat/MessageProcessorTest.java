@@ -0,0 +1,54 @@
+package com.star.ai.chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageProcessorTest {
+
+    private final MessageProcessor processor = new MessageProcessor();
+
+    @Test
+    void convertsChineseTens() {
+        assertEquals("10", processor.preprocessMessage("十"));
+        assertEquals("15", processor.preprocessMessage("十五"));
+        assertEquals("20", processor.preprocessMessage("二十"));
+        assertEquals("25", processor.preprocessMessage("二十五"));
+        assertEquals("10个人", processor.preprocessMessage("十个人"));
+        assertEquals("预算20块", processor.preprocessMessage("预算二十块"));
+    }
+
+    @Test
+    void convertsSingleDigitsAndLiang() {
+        assertEquals("2个人3个菜", processor.preprocessMessage("两个人三个菜"));
+        assertEquals("1份", processor.preprocessMessage("一份"));
+    }
+
+    @Test
+    void collapsesWhitespaceAndTrims() {
+        assertEquals("我们 2个人 吃辣", processor.preprocessMessage("  我们   两个人 \n\t 吃辣  "));
+    }
+
+    @Test
+    void replacesEmoji() {
+        assertEquals("好吃[开心][满意]", processor.preprocessMessage("好吃😊👍"));
+        assertEquals("[不满意]", processor.preprocessMessage("👎"));
+    }
+
+    @Test
+    void returnsEmptyForBlankInput() {
+        assertEquals("", processor.preprocessMessage(null));
+        assertEquals("", processor.preprocessMessage("   "));
+    }
+
+    @Test
+    void extractsPeopleAndBudgetAfterPreprocessing() {
+        Map<String, Object> info = processor.extractKeyInformation(processor.preprocessMessage("三个人，人均二十五元，想吃川菜"));
+
+        assertEquals(3, info.get("peopleCount"));
+        assertEquals(25, info.get("budget"));
+        assertEquals("川菜", info.get("cuisineType"));
+    }
+}
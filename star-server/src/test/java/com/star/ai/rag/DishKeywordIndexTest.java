@@ -0,0 +1,98 @@
+package com.star.ai.rag;
+
+import com.star.constant.StatusConstant;
+import com.star.entity.Dish;
+import com.star.mapper.DishMapper;
+import com.star.mapper.DishTagMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DishKeywordIndexTest {
+
+    @Mock
+    private DishMapper dishMapper;
+    @Mock
+    private DishTagMapper dishTagMapper;
+    @InjectMocks
+    private DishKeywordIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(index, "enabled", true);
+    }
+
+    @Test
+    void tokenizesChineseAsBigrams() {
+        assertEquals(Arrays.asList("麻婆", "婆豆", "豆腐"), DishKeywordIndex.tokenize("麻婆豆腐"));
+        assertEquals(Collections.singletonList("辣"), DishKeywordIndex.tokenize("辣"));
+    }
+
+    @Test
+    void tokenizesMixedText() {
+        assertEquals(Arrays.asList("spicy", "beef", "2", "份", "微辣"), DishKeywordIndex.tokenize("Spicy Beef 2份，微辣"));
+        assertTrue(DishKeywordIndex.tokenize(null).isEmpty());
+        assertTrue(DishKeywordIndex.tokenize("，。！").isEmpty());
+    }
+
+    @Test
+    void ranksExactDishNameFirstAndSkipsDisabledDishes() {
+        List<Dish> dishes = Arrays.asList(
+                dish(1L, "麻婆豆腐", "麻辣鲜香的川味豆腐", StatusConstant.ENABLE),
+                dish(2L, "宫保鸡丁", "花生和鸡肉爆炒", StatusConstant.ENABLE),
+                dish(3L, "家常豆腐", "豆腐煎至两面金黄", StatusConstant.ENABLE),
+                dish(4L, "麻婆茄子", "已停售", StatusConstant.DISABLE));
+        when(dishMapper.selectPageAfterId(anyLong(), anyInt())).thenReturn(dishes, Collections.emptyList());
+        index.rebuild();
+
+        List<Document> result = index.search("麻婆豆腐", 10);
+
+        assertEquals("dish-1", result.get(0).getId());
+        assertTrue(result.stream().noneMatch(doc -> doc.getId().equals("dish-4")));
+        assertTrue(result.stream().noneMatch(doc -> doc.getId().equals("dish-2")));
+        double first = (double) result.get(0).getMetadata().get("bm25Score");
+        double second = (double) result.get(1).getMetadata().get("bm25Score");
+        assertTrue(first > second);
+    }
+
+    @Test
+    void limitsResultsToTopK() {
+        List<Dish> dishes = Arrays.asList(
+                dish(1L, "麻婆豆腐", "豆腐", StatusConstant.ENABLE),
+                dish(2L, "家常豆腐", "豆腐", StatusConstant.ENABLE),
+                dish(3L, "豆腐汤", "豆腐", StatusConstant.ENABLE));
+        when(dishMapper.selectPageAfterId(anyLong(), anyInt())).thenReturn(dishes, Collections.emptyList());
+        index.rebuild();
+
+        assertEquals(2, index.search("豆腐", 2).size());
+        assertTrue(index.search("牛排", 5).isEmpty());
+    }
+
+    private static Dish dish(Long id, String name, String description, Integer status) {
+        return Dish.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .status(status)
+                .categoryId(1L)
+                .price(new BigDecimal("28"))
+                .build();
+    }
+}
@@ -0,0 +1,94 @@
+package com.star.ai.rag;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VectorSearchServiceTest {
+
+    @Mock
+    private KnowledgeBaseRouter knowledgeBaseRouter;
+    @Mock
+    private DishKeywordIndex dishKeywordIndex;
+    @Mock
+    private VectorStore dishStore;
+    @InjectMocks
+    private VectorSearchService vectorSearchService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(vectorSearchService, "rrfK", 60);
+        ReflectionTestUtils.setField(vectorSearchService, "candidateMultiplier", 3);
+        when(knowledgeBaseRouter.getStore(KnowledgeBaseRouter.DISHES)).thenReturn(dishStore);
+    }
+
+    @Test
+    void hybridFusesRankingsByReciprocalRank() {
+        when(dishStore.similaritySearch(any(SearchRequest.class))).thenReturn(docs("dish-1", "dish-2", "dish-3"));
+        when(dishKeywordIndex.search(eq("豆腐"), anyInt())).thenReturn(docs("dish-3", "dish-4"));
+
+        List<Document> result = vectorSearchService.search("豆腐", 3, 0.7, VectorSearchService.RetrievalMode.HYBRID);
+
+        // dish-3两路都命中排第一；dish-2与dish-4得分相同，按首次出现的顺序
+        assertEquals(Arrays.asList("dish-3", "dish-1", "dish-2"), ids(result));
+        assertEquals(1.0 / 63 + 1.0 / 61, (double) result.get(0).getMetadata().get("rrfScore"), 1e-9);
+        assertEquals(1.0 / 61, (double) result.get(1).getMetadata().get("rrfScore"), 1e-9);
+    }
+
+    @Test
+    void hybridKeepsKeywordOnlyMatches() {
+        when(dishStore.similaritySearch(any(SearchRequest.class))).thenReturn(new ArrayList<>());
+        // 每路召回 topK * candidateMultiplier 个候选
+        when(dishKeywordIndex.search(eq("麻婆豆腐"), eq(6))).thenReturn(docs("dish-1"));
+
+        List<Document> result = vectorSearchService.search("麻婆豆腐", 2, 0.7, VectorSearchService.RetrievalMode.HYBRID);
+
+        assertEquals(Collections.singletonList("dish-1"), ids(result));
+    }
+
+    @Test
+    void vectorModeSkipsKeywordIndex() {
+        when(dishStore.similaritySearch(any(SearchRequest.class))).thenReturn(docs("dish-2", "dish-1"));
+
+        List<Document> result = vectorSearchService.search("豆腐", 5, 0.7, VectorSearchService.RetrievalMode.VECTOR);
+
+        assertEquals(Arrays.asList("dish-2", "dish-1"), ids(result));
+        assertEquals(KnowledgeBaseRouter.DISHES, result.get(0).getMetadata().get("knowledgeBase"));
+        verify(dishKeywordIndex, never()).search(any(), anyInt());
+    }
+
+    private static List<Document> docs(String... ids) {
+        List<Document> docs = new ArrayList<>();
+        for (String id : ids) {
+            docs.add(new Document(id, id, new HashMap<>()));
+        }
+        return docs;
+    }
+
+    private static List<String> ids(List<Document> docs) {
+        return docs.stream().map(Document::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,171 @@
+package com.star.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * WebSocket推送：慢客户端的积压有上限、写满后被断开，其他会话照常收到全部消息
+ * 不依赖耗时断言，通过发送次数和收到的消息验证推送线程不会等待任何会话
+ */
+class WebSocketServerTest {
+
+    private static final int MAX_PENDING = (int) ReflectionTestUtils.getField(WebSocketServer.class, "MAX_PENDING_MESSAGES");
+
+    private final WebSocketServer server = new WebSocketServer();
+    private final List<String> openedSids = new ArrayList<>();
+    private final List<Session> openedSessions = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (int i = 0; i < openedSids.size(); i++) {
+            server.onClose(openedSessions.get(i), openedSids.get(i));
+        }
+    }
+
+    @Test
+    void slowConsumerIsEvictedAndFastConsumerReceivesEveryMessage() throws Exception {
+        List<String> slowSent = new ArrayList<>();
+        Session slow = open("slow", (message, handler) -> {
+            // 永不回调，模拟一直发不完的浏览器标签页
+            slowSent.add(message);
+        });
+        List<String> fastReceived = new ArrayList<>();
+        Session fast = open("fast", (message, handler) -> {
+            fastReceived.add(message);
+            handler.onResult(new SendResult());
+        });
+
+        int messages = MAX_PENDING + 2;
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < messages; i++) {
+            expected.add("msg-" + i);
+            server.sendToTopic(WebSocketServer.MERCHANT_TOPIC, "msg-" + i);
+        }
+
+        // 慢客户端同一时刻只有一条在途，其余在有界队列中积压，写满后被断开
+        assertEquals(Collections.singletonList("msg-0"), slowSent);
+        verify(slow).close(any(CloseReason.class));
+        // 快客户端按顺序收到全部消息，且不受慢客户端影响
+        assertEquals(expected, fastReceived);
+        verify(fast, never()).close(any(CloseReason.class));
+        assertEquals(1, server.getSessionCount());
+    }
+
+    @Test
+    void pendingMessagesAreDeliveredInOrderWhenClientCatchesUp() throws Exception {
+        List<String> sent = new ArrayList<>();
+        List<SendHandler> callbacks = new ArrayList<>();
+        Session lagging = open("lagging", (message, handler) -> {
+            sent.add(message);
+            callbacks.add(handler);
+        });
+
+        for (int i = 0; i < 10; i++) {
+            server.sendToTopic(WebSocketServer.MERCHANT_TOPIC, "msg-" + i);
+        }
+        assertEquals(1, sent.size());
+
+        // 每次发送完成后才发出下一条
+        while (!callbacks.isEmpty()) {
+            callbacks.remove(0).onResult(new SendResult());
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            expected.add("msg-" + i);
+        }
+        assertEquals(expected, sent);
+        verify(lagging, never()).close(any(CloseReason.class));
+    }
+
+    @Test
+    void fanOutWorkPerMessageIsIndependentOfSlowSessions() {
+        int sessions = 2000;
+        int messages = 3;
+        Map<String, AtomicInteger> received = new HashMap<>();
+        for (int i = 0; i < sessions; i++) {
+            AtomicInteger count = new AtomicInteger();
+            received.put("load-" + i, count);
+            open("load-" + i, (message, handler) -> {
+                count.incrementAndGet();
+                handler.onResult(new SendResult());
+            });
+        }
+        // 混入慢客户端：各自只占用一条在途发送，不会让推送线程等待
+        AtomicInteger slowAttempts = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            open("load-slow-" + i, (message, handler) -> slowAttempts.incrementAndGet());
+        }
+
+        for (int i = 0; i < messages; i++) {
+            server.sendToTopic(WebSocketServer.MERCHANT_TOPIC, "order-" + i);
+        }
+
+        for (Map.Entry<String, AtomicInteger> entry : received.entrySet()) {
+            assertEquals(messages, entry.getValue().get(), entry.getKey());
+        }
+        assertEquals(10, slowAttempts.get());
+        assertEquals(sessions + 10, server.getSessionCount());
+    }
+
+    @Test
+    void userTopicsCannotBeSubscribed() {
+        AtomicInteger received = new AtomicInteger();
+        open("spy", Collections.singletonMap("topics", Collections.singletonList("user:42,shop:1")), (message, handler) -> {
+            received.incrementAndGet();
+            handler.onResult(new SendResult());
+        });
+
+        server.sendToTopic("user:42", "order-status");
+        server.sendToTopic("shop:1", "reminder");
+
+        assertEquals(1, received.get());
+    }
+
+    private Session open(String sid, Sender sender) {
+        return open(sid, Collections.emptyMap(), sender);
+    }
+
+    private Session open(String sid, Map<String, List<String>> params, Sender sender) {
+        Session session = mock(Session.class);
+        RemoteEndpoint.Async async = mock(RemoteEndpoint.Async.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getRequestParameterMap()).thenReturn(params);
+        when(session.getAsyncRemote()).thenReturn(async);
+        doAnswer(invocation -> {
+            sender.send(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(async).sendText(anyString(), any(SendHandler.class));
+        server.onOpen(session, sid);
+        openedSids.add(sid);
+        openedSessions.add(session);
+        return session;
+    }
+
+    @FunctionalInterface
+    private interface Sender {
+        void send(String message, SendHandler handler);
+    }
+}